@@ -17,8 +17,10 @@
 package com.cyphercove.lwptools.android.prefs;
 
 import android.graphics.Color;
+import com.cyphercove.lwptools.core.ColorRampAtlas;
 import com.cyphercove.lwptools.core.ColorUtil;
 import com.cyphercove.lwptools.core.IntColor;
+import com.cyphercove.lwptools.core.PerceptualBlend;
 
 import java.util.Map;
 
@@ -31,10 +33,21 @@ public class AdvancedColor {
 		public static final int PLUGGED_STATE_BASED = 2;
 	}
 
+	/** How BATTERY_LEVEL_BASED colors are blended between battery levels.*/
+	public static class BlendMode {
+		/** sRGB blend with saturation restored in HSV. See {@link ColorUtil#blendAndroidIntsPreservingLerpedSaturation(int, int, float)}.*/
+		public static final int LERPED_SATURATION = 0;
+		/** Blend in linear light. See {@link PerceptualBlend#blendLinear(int, int, float)}.*/
+		public static final int LINEAR = 1;
+		/** Blend in the OKLab perceptual color space. See {@link PerceptualBlend#blendOklab(int, int, float)}.*/
+		public static final int OKLAB = 2;
+	}
+
 	private int mColorType;
 	private int[] mColors;
 	private String mNonColorMode="";
 	private boolean threeColorBatteryLevel = false;
+	private int[] mBakedRamp;
 
     public AdvancedColor (int constantColor){
         this(ColorType.CONSTANT, constantColor);
@@ -94,6 +107,7 @@ public class AdvancedColor {
 	
 	public void setThreeColorBatteryLevelMode(boolean threeColorBatteryLevel){
 		this.threeColorBatteryLevel = threeColorBatteryLevel;
+		mBakedRamp = null;
 		if (mColorType== ColorType.BATTERY_LEVEL_BASED ){
 			if (threeColorBatteryLevel && mColors.length<3){
 				//expand to three
@@ -135,6 +149,7 @@ public class AdvancedColor {
 			return;
 
 		mColorType = colorType;
+		mBakedRamp = null;
 
 		int color0, color1, color2;
 
@@ -161,19 +176,90 @@ public class AdvancedColor {
 
 	public void setNonColor(String nonColorMode){
 		mColorType = ColorType.NOT_A_COLOR;
+		mBakedRamp = null;
 		mColors = new int[1];
 		mColors[0] = Color.BLACK;
 		mNonColorMode = nonColorMode;
 	}
 
-	/**Returned colors can be modified to change the AdvancedColor*/
+	/**Returned colors can be modified to change the AdvancedColor. Bake the ramp again afterwards if it was baked.*/
 	public int[] getColors(){
 		return mColors;
 	}
 
-	private static final String TYPE_TO_COLORS_SEPARATOR = "A";
-	private static final String COLORS_SEPARATOR = "B";
+	/**
+	 * @return The color at the given battery level. For types other than BATTERY_LEVEL_BASED, this is the first color.
+	 * @param blendMode One of the {@link BlendMode} constants.
+	 */
+	public int getBatteryLevelColor(float batteryLevel, int blendMode){
+		if (mColorType != ColorType.BATTERY_LEVEL_BASED)
+			return mColors[0];
+		boolean threeColors = threeColorBatteryLevel && mColors.length>2;
+		return batteryLevelColor(mColors[0], mColors[1], threeColors ? mColors[2] : mColors[1], threeColors,
+				batteryLevel, blendMode);
+	}
 
+	static int batteryLevelColor(int color0, int color1, int color2, boolean threeColors, float batteryLevel,
+			int blendMode){
+		int colorOne = color0;
+		int colorTwo = color1;
+		float blend = batteryLevel;
+		if (threeColors){
+			if (batteryLevel >0.5f){
+				blend = (batteryLevel-0.5f)*2;
+				colorOne = color1;
+				colorTwo = color2;
+			} else {
+				blend = batteryLevel*2;
+			}
+		}
+		return blendBatteryColors(colorOne, colorTwo, blend, blendMode);
+	}
+
+	/**Whether a BATTERY_LEVEL_BASED color blends between three colors.*/
+	public boolean isThreeColorBatteryLevel(){
+		return threeColorBatteryLevel && mColors.length>2;
+	}
+
+	/**
+	 * Precomputes the colors at evenly spaced battery levels from 0 to 1, so
+	 * {@link #updateLibgdxColorsFromMap(Map, float, boolean, boolean, int)} can look them up instead of blending. The
+	 * ramp can also be added to a {@link ColorRampAtlas} for use in shaders. The baked ramp is discarded if the color
+	 * type changes, but not if the colors are modified, so bake it again after modifying them.
+	 * @param size The number of colors in the ramp, at least 2, such as {@link ColorRampAtlas#DEFAULT_RAMP_WIDTH}.
+	 * @param blendMode One of the {@link BlendMode} constants.
+	 * @return The ramp, as Android Color ints.
+	 */
+	public int[] bakeBatteryLevelRamp(int size, int blendMode){
+		if (size < 2)
+			throw new IllegalArgumentException("Ramp size must be at least 2");
+		if (mBakedRamp == null || mBakedRamp.length != size)
+			mBakedRamp = new int[size];
+		for (int i=0; i<size; i++){
+			mBakedRamp[i] = getBatteryLevelColor((float)i/(size-1), blendMode);
+		}
+		return mBakedRamp;
+	}
+
+	/**@return The ramp from the last call to {@link #bakeBatteryLevelRamp(int, int)}, or null if it isn't baked.*/
+	public int[] getBakedRamp(){
+		return mBakedRamp;
+	}
+
+	public void clearBakedRamp(){
+		mBakedRamp = null;
+	}
+
+	private static final char TYPE_TO_COLORS_SEPARATOR = 'A';
+	private static final char COLORS_SEPARATOR = 'B';
+	private static final char COMPACT_PREFIX = '~';
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Produces the decimal form, with 'A' after the color type and 'B' between colors, which preferences are saved
+	 * in. NOT_A_COLOR AdvancedColors produce their non-color mode.
+	 * @see #toCompactString()
+	 */
 	@Override 
 	public String toString(){
 		if (mColorType== ColorType.NOT_A_COLOR)
@@ -191,37 +277,131 @@ public class AdvancedColor {
 		return sb.toString();
 	}
 
+	/**
+	 * Produces the compact form: a '~', the color type as one hex digit, and then each color as eight hex digits
+	 * (AARRGGBB). It is shorter and faster to read than {@link #toString()}, but versions before it can't read it, so
+	 * only use it for strings that aren't shared with them. {@link #fromString(String)} reads both forms. Color types
+	 * that don't fit in one hex digit and NOT_A_COLOR AdvancedColors produce the same as toString().
+	 */
+	public String toCompactString(){
+		if (mColorType < 0 || mColorType > 0xF)
+			return toString();
+
+		char[] chars = new char[2 + mColors.length * 8];
+		chars[0] = COMPACT_PREFIX;
+		chars[1] = HEX_DIGITS[mColorType];
+		int c = 2;
+		for (int color : mColors){
+			for (int shift = 28; shift >= 0; shift -= 4)
+				chars[c++] = HEX_DIGITS[(color >>> shift) & 0xF];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Reads the decimal form of {@link #toString()} or the compact form of {@link #toCompactString()}. Strings in
+	 * neither form produce a NOT_A_COLOR AdvancedColor with the string as its non-color mode. The only allocation is
+	 * the resulting AdvancedColor and its colors.
+	 */
 	public static AdvancedColor fromString(String string){
-		String[] typeAndColors = string.split(TYPE_TO_COLORS_SEPARATOR);
+		int length = string.length();
+		if (length > 0 && string.charAt(0) == COMPACT_PREFIX)
+			return fromCompactString(string);
 
-		if (typeAndColors.length != 2)
+		//Trailing separators are ignored, like the trailing empty strings String.split() used to drop.
+		while (length > 0 && string.charAt(length - 1) == TYPE_TO_COLORS_SEPARATOR)
+			length--;
+		int separator = string.indexOf(TYPE_TO_COLORS_SEPARATOR);
+		if (separator < 0 || separator >= length - 1)
 			return new AdvancedColor(string); //not a color
-		
-		int colorType;
-		
-		try{
-			colorType = Integer.parseInt(typeAndColors[0]);
-		} catch (NumberFormatException e){
+		long colorType = parseDecimal(string, 0, separator);
+		if (colorType == INVALID)
 			return new AdvancedColor(string); //not a color
+		while (string.charAt(length - 1) == COLORS_SEPARATOR)
+			if (--length == separator + 1)
+				return new AdvancedColor(string); //not a color
+
+		int colorCount = 1;
+		for (int i = separator + 1; i < length; i++){
+			if (string.charAt(i) == COLORS_SEPARATOR)
+				colorCount++;
+		}
+		int colors[] = new int[colorCount];
+		int start = separator + 1;
+		for (int i = 0; i < colorCount; i++){
+			int end = string.indexOf(COLORS_SEPARATOR, start);
+			if (end < 0 || end > length)
+				end = length;
+			long color = parseDecimal(string, start, end);
+			if (color == INVALID)
+				return new AdvancedColor(string); //not a color
+			colors[i] = (int)color;
+			start = end + 1;
 		}
-		
-		String[] stringColors = typeAndColors[1].split(COLORS_SEPARATOR);
-		
-		if (stringColors.length < 1)
+		return new AdvancedColor((int)colorType, colors);
+	}
+
+	private static AdvancedColor fromCompactString(String string){
+		int length = string.length();
+		if (length < 10 || (length - 2) % 8 != 0)
 			return new AdvancedColor(string); //not a color
-		
-		int colors[] = new int[stringColors.length];
-		try {
-			for (int i=0; i< colors.length; i++){
-				colors[i] = Integer.parseInt(stringColors[i]);
-			}
-		} catch (NumberFormatException e){
+		int colorType = hexValue(string.charAt(1));
+		if (colorType < 0)
 			return new AdvancedColor(string); //not a color
+		int colors[] = new int[(length - 2) / 8];
+		int c = 2;
+		for (int i = 0; i < colors.length; i++){
+			int color = 0;
+			for (int end = c + 8; c < end; c++){
+				int digit = hexValue(string.charAt(c));
+				if (digit < 0)
+					return new AdvancedColor(string); //not a color
+				color = (color << 4) | digit;
+			}
+			colors[i] = color;
 		}
-		
 		return new AdvancedColor(colorType, colors);
 	}
 
+	private static final long INVALID = Long.MIN_VALUE;
+
+	/** @return The signed decimal int between start and end, or INVALID if it isn't one. Like Integer.parseInt. */
+	private static long parseDecimal(String string, int start, int end){
+		if (start >= end)
+			return INVALID;
+		boolean negative = false;
+		char first = string.charAt(start);
+		if (first == '-' || first == '+'){
+			negative = first == '-';
+			if (++start == end)
+				return INVALID;
+		}
+		long value = 0;
+		for (int i = start; i < end; i++){
+			char c = string.charAt(i);
+			if (c < '0' || c > '9')
+				return INVALID;
+			value = value * 10 + (c - '0');
+			if (value > 0x80000000L)
+				return INVALID;
+		}
+		if (negative)
+			value = -value;
+		if (value > Integer.MAX_VALUE)
+			return INVALID;
+		return value;
+	}
+
+	private static int hexValue(char c){
+		if (c >= '0' && c <= '9')
+			return c - '0';
+		if (c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		if (c >= 'A' && c <= 'F')
+			return c - 'A' + 10;
+		return -1;
+	}
+
     public String toDebugString(){
         StringBuilder sb = new StringBuilder();
         sb.append("Color type: ").append(mColorType);
@@ -251,6 +431,20 @@ public class AdvancedColor {
 	 */
 	public static void updateLibgdxColorsFromMap(Map<AdvancedColor, com.badlogic.gdx.graphics.Color> map,
 			float batteryLevel, boolean isCharging, boolean powerBasedColorsOnly){
+		updateLibgdxColorsFromMap(map, batteryLevel, isCharging, powerBasedColorsOnly, BlendMode.LERPED_SATURATION);
+	}
+
+	/**
+	 * Directly update a map of libgdx colors from AdvancedColors. AdvancedColors that are NOT_A_COLOR are ignored.
+	 * BATTERY_LEVEL_BASED AdvancedColors with a baked ramp are looked up from it instead of blended.
+	 * @param map
+	 * @param batteryLevel
+	 * @param isCharging
+	 * @param powerBasedColorsOnly Whether to ignore CONSTANT AdvancedColors.
+	 * @param blendMode One of the {@link BlendMode} constants, for BATTERY_LEVEL_BASED AdvancedColors.
+	 */
+	public static void updateLibgdxColorsFromMap(Map<AdvancedColor, com.badlogic.gdx.graphics.Color> map,
+			float batteryLevel, boolean isCharging, boolean powerBasedColorsOnly, int blendMode){
 		for (Map.Entry<AdvancedColor, com.badlogic.gdx.graphics.Color> entry : map.entrySet()){
 			AdvancedColor advancedColor = entry.getKey();
 			int[] argbColors = advancedColor.getColors();
@@ -263,21 +457,10 @@ public class AdvancedColor {
 				}
 				break;
 			case AdvancedColor.ColorType.BATTERY_LEVEL_BASED:
-                int colorOne = argbColors[0];
-                int colorTwo = argbColors[1];
-                if (advancedColor.threeColorBatteryLevel && argbColors.length>2){
-                    if (batteryLevel >0.5f){
-                        batteryLevel = (batteryLevel-0.5f)*2;
-                        colorOne = argbColors[1];
-                        colorTwo = argbColors[2];
-                    } else {
-                        batteryLevel *= 2;
-                    }
-                }
-                entry.getValue().set(
-                        IntColor.rgba(
-                                ColorUtil.blendAndroidIntsPreservingLerpedSaturation(
-										colorOne, colorTwo, batteryLevel)));
+				int color = advancedColor.mBakedRamp != null ?
+						ColorRampAtlas.sample(advancedColor.mBakedRamp, batteryLevel) :
+						advancedColor.getBatteryLevelColor(batteryLevel, blendMode);
+				entry.getValue().set(IntColor.rgba(color));
 				break;
 			case AdvancedColor.ColorType.PLUGGED_STATE_BASED:
 				entry.getValue().set(IntColor.rgba(isCharging ? argbColors[1] : argbColors[0]));
@@ -286,6 +469,17 @@ public class AdvancedColor {
 		}
 	}
 
+	private static int blendBatteryColors(int colorOne, int colorTwo, float blend, int blendMode){
+		switch (blendMode){
+		case BlendMode.LINEAR:
+			return PerceptualBlend.blendLinear(colorOne, colorTwo, blend);
+		case BlendMode.OKLAB:
+			return PerceptualBlend.blendOklab(colorOne, colorTwo, blend);
+		default:
+			return ColorUtil.blendAndroidIntsPreservingLerpedSaturation(colorOne, colorTwo, blend);
+		}
+	}
+
     public static String produceString(int constantColor){
         return produceString(ColorType.CONSTANT, constantColor);
     }
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.android.prefs;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.IntArray;
+import com.cyphercove.lwptools.core.ColorRampAtlas;
+import com.cyphercove.lwptools.core.IntColor;
+
+import java.util.Arrays;
+
+/**
+ * A set of AdvancedColors and the libgdx Colors they drive, as a replacement for
+ * {@link AdvancedColor#updateLibgdxColorsFromMap(java.util.Map, float, boolean, boolean, int)}. Each update only
+ * re-evaluates the entries affected by the inputs that changed, and only writes targets whose color changed, so it
+ * does no work when the battery level and charging state are steady.
+ * <p>
+ * The AdvancedColors are copied when added, so call {@link #set(int, AdvancedColor)} after changing one.
+ */
+public class AdvancedColorSet {
+
+	private static final int TYPE_UNSET = Integer.MIN_VALUE;
+
+	private int size;
+	private int[] types;
+	private int[] colors; //three per entry
+	private boolean[] threeColors;
+	private int[][] ramps;
+	private int[] currentColors;
+	private Color[] targets;
+
+	private final IntArray batteryBased = new IntArray();
+	private final IntArray pluggedBased = new IntArray();
+	private final IntArray pending = new IntArray();
+	private final IntArray changed = new IntArray();
+	private boolean[] isPending;
+
+	private int blendMode = AdvancedColor.BlendMode.LERPED_SATURATION;
+	private float batteryLevel = Float.NaN;
+	private boolean isCharging;
+	private boolean hasUpdated;
+
+	public AdvancedColorSet(){
+		this(16);
+	}
+
+	public AdvancedColorSet(int initialCapacity){
+		initialCapacity = Math.max(initialCapacity, 1);
+		types = new int[initialCapacity];
+		colors = new int[initialCapacity * 3];
+		threeColors = new boolean[initialCapacity];
+		ramps = new int[initialCapacity][];
+		currentColors = new int[initialCapacity];
+		targets = new Color[initialCapacity];
+		isPending = new boolean[initialCapacity];
+	}
+
+	/**
+	 * Adds an AdvancedColor that sets the target Color on updates. If it has a baked ramp, the ramp is used instead of
+	 * blending. NOT_A_COLOR AdvancedColors are kept but never set their target.
+	 * @return The index of the entry.
+	 */
+	public int add(AdvancedColor advancedColor, Color target){
+		if (size == types.length)
+			grow(size * 2);
+		int index = size++;
+		targets[index] = target;
+		types[index] = TYPE_UNSET;
+		set(index, advancedColor);
+		return index;
+	}
+
+	/** Replaces the AdvancedColor of an entry, or copies it again after it was modified. Its target is evaluated on
+	 * the next update. */
+	public void set(int index, AdvancedColor advancedColor){
+		checkIndex(index);
+		int oldType = types[index];
+		int type = advancedColor.getColorType();
+		if (oldType != type){
+			removeFrom(indicesForType(oldType), index);
+			IntArray indices = indicesForType(type);
+			if (indices != null)
+				indices.add(index);
+		}
+		types[index] = type;
+		int[] source = advancedColor.getColors();
+		int c = index * 3;
+		colors[c] = source[0];
+		colors[c + 1] = source.length > 1 ? source[1] : source[0];
+		colors[c + 2] = source.length > 2 ? source[2] : colors[c + 1];
+		threeColors[index] = type == AdvancedColor.ColorType.BATTERY_LEVEL_BASED &&
+				advancedColor.isThreeColorBatteryLevel();
+		int[] bakedRamp = advancedColor.getBakedRamp();
+		if (bakedRamp == null){
+			ramps[index] = null;
+		} else {
+			if (ramps[index] == null || ramps[index].length != bakedRamp.length)
+				ramps[index] = new int[bakedRamp.length];
+			System.arraycopy(bakedRamp, 0, ramps[index], 0, bakedRamp.length);
+		}
+		markPending(index);
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public Color getTarget(int index){
+		checkIndex(index);
+		return targets[index];
+	}
+
+	/** Removes all entries. */
+	public void clear(){
+		Arrays.fill(targets, 0, size, null);
+		Arrays.fill(ramps, 0, size, null);
+		Arrays.fill(isPending, 0, size, false);
+		size = 0;
+		batteryBased.clear();
+		pluggedBased.clear();
+		pending.clear();
+		changed.clear();
+		hasUpdated = false;
+	}
+
+	/** Sets how BATTERY_LEVEL_BASED entries without a baked ramp blend. Takes effect on the next update.
+	 * @param blendMode One of the {@link AdvancedColor.BlendMode} constants. */
+	public void setBlendMode(int blendMode){
+		if (this.blendMode == blendMode)
+			return;
+		this.blendMode = blendMode;
+		for (int i = 0; i < batteryBased.size; i++)
+			markPending(batteryBased.get(i));
+	}
+
+	public int getBlendMode(){
+		return blendMode;
+	}
+
+	/** Makes every entry evaluate on the next update, such as after the targets were changed elsewhere. */
+	public void invalidate(){
+		for (int i = 0; i < size; i++)
+			markPending(i);
+	}
+
+	/**
+	 * Sets the targets of entries that are affected by the inputs that changed since the last update, and of entries
+	 * that were added or set since then.
+	 * @return The number of targets whose color changed. Their indices are available from {@link #getChangedIndices()}.
+	 */
+	public int update(float batteryLevel, boolean isCharging){
+		changed.clear();
+		boolean batteryChanged = !hasUpdated || batteryLevel != this.batteryLevel;
+		boolean chargingChanged = !hasUpdated || isCharging != this.isCharging;
+		this.batteryLevel = batteryLevel;
+		this.isCharging = isCharging;
+		hasUpdated = true;
+
+		for (int i = 0; i < pending.size; i++){
+			int index = pending.get(i);
+			isPending[index] = false;
+			evaluate(index, true);
+		}
+		pending.clear();
+		if (batteryChanged){
+			for (int i = 0; i < batteryBased.size; i++)
+				evaluate(batteryBased.get(i), false);
+		}
+		if (chargingChanged){
+			for (int i = 0; i < pluggedBased.size; i++)
+				evaluate(pluggedBased.get(i), false);
+		}
+		return changed.size;
+	}
+
+	/** @return The indices of the entries whose targets changed in the last update. Must not be modified. */
+	public IntArray getChangedIndices(){
+		return changed;
+	}
+
+	private void evaluate(int index, boolean force){
+		int c = index * 3;
+		int color;
+		switch (types[index]){
+		case AdvancedColor.ColorType.CONSTANT:
+			color = colors[c];
+			break;
+		case AdvancedColor.ColorType.BATTERY_LEVEL_BASED:
+			color = ramps[index] != null ? ColorRampAtlas.sample(ramps[index], batteryLevel) :
+					AdvancedColor.batteryLevelColor(colors[c], colors[c + 1], colors[c + 2], threeColors[index],
+							batteryLevel, blendMode);
+			break;
+		case AdvancedColor.ColorType.PLUGGED_STATE_BASED:
+			color = isCharging ? colors[c + 1] : colors[c];
+			break;
+		default:
+			return;
+		}
+		if (!force && color == currentColors[index])
+			return;
+		currentColors[index] = color;
+		targets[index].set(IntColor.rgba(color));
+		changed.add(index);
+	}
+
+	private IntArray indicesForType(int type){
+		switch (type){
+		case AdvancedColor.ColorType.BATTERY_LEVEL_BASED:
+			return batteryBased;
+		case AdvancedColor.ColorType.PLUGGED_STATE_BASED:
+			return pluggedBased;
+		default:
+			return null;
+		}
+	}
+
+	private static void removeFrom(IntArray indices, int index){
+		if (indices != null)
+			indices.removeValue(index);
+	}
+
+	private void markPending(int index){
+		if (!isPending[index]){
+			isPending[index] = true;
+			pending.add(index);
+		}
+	}
+
+	private void checkIndex(int index){
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+	}
+
+	private void grow(int capacity){
+		types = Arrays.copyOf(types, capacity);
+		colors = Arrays.copyOf(colors, capacity * 3);
+		threeColors = Arrays.copyOf(threeColors, capacity);
+		ramps = Arrays.copyOf(ramps, capacity);
+		currentColors = Arrays.copyOf(currentColors, capacity);
+		targets = Arrays.copyOf(targets, capacity);
+		isPending = Arrays.copyOf(isPending, capacity);
+	}
+}
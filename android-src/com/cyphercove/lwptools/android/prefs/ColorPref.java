@@ -135,10 +135,7 @@ public class ColorPref extends Pref implements ColorPickerDialog.OnColorPrefChan
 		//space, then label, then 10 blend spaces, then 2 of end color
 		Spannable summary = new SpannableString ( " " + label + "          " + "  ");
 		int[] blendColors = new int[11]; //[0] won't be used because same color as start color
-		for (int i=0;i<blendColors.length;i++){
-			float fraction = (float)i/(float)blendColors.length;
-			blendColors[i]=ColorUtil.blendAndroidIntsPreservingLerpedSaturation(start, end, fraction);
-		}
+		ColorUtil.blendAndroidIntsPreservingLerpedSaturation(start, end, blendColors, 0, blendColors.length);
 		
 		summary.setSpan( new BackgroundColorSpan( start ), 0, 1+label.length(), 0 );
 		for (int i=1;i<blendColors.length;i++){
@@ -160,10 +157,7 @@ public class ColorPref extends Pref implements ColorPickerDialog.OnColorPrefChan
 		//space, then label, then 5 blend spaces, then 1 of end color
 		Spannable summary = new SpannableString ( " " + label + "     " + " ");
 		int[] blendColors = new int[6]; //[0] won't be used because same color as start color
-		for (int i=0;i<blendColors.length;i++){
-			float fraction = (float)i/(float)blendColors.length;
-			blendColors[i]= ColorUtil.blendAndroidIntsPreservingLerpedSaturation(start, end, fraction);
-		}
+		ColorUtil.blendAndroidIntsPreservingLerpedSaturation(start, end, blendColors, 0, blendColors.length);
 		
 		summary.setSpan( new BackgroundColorSpan( start ), 0, 1+label.length(), 0 );
 		for (int i=1;i<blendColors.length;i++){
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.android.prefs;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading the preference strings of {@link AdvancedColor}, in the decimal form of
+ * toString() and the compact form, and reading the decimal form with the String.split() parser that
+ * fromString() replaced.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdvancedColorBenchmark {
+
+    private static final int COUNT = 256;
+
+    private final AdvancedColor[] advancedColors = new AdvancedColor[COUNT];
+    private final String[] strings = new String[COUNT];
+    private final String[] compactStrings = new String[COUNT];
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0);
+        for (int i = 0; i < COUNT; i++){
+            switch (i % 4){
+                case 0:
+                    strings[i] = AdvancedColor.produceString(random.nextInt());
+                    break;
+                case 1:
+                    strings[i] = AdvancedColor.produceString(AdvancedColor.ColorType.BATTERY_LEVEL_BASED,
+                            random.nextInt(), random.nextInt());
+                    break;
+                case 2:
+                    strings[i] = AdvancedColor.produceString(AdvancedColor.ColorType.BATTERY_LEVEL_BASED,
+                            random.nextInt(), random.nextInt(), random.nextInt());
+                    break;
+                default:
+                    strings[i] = AdvancedColor.produceString(AdvancedColor.ColorType.PLUGGED_STATE_BASED,
+                            random.nextInt(), random.nextInt());
+            }
+            advancedColors[i] = AdvancedColor.fromString(strings[i]);
+            compactStrings[i] = advancedColors[i].toCompactString();
+        }
+    }
+
+    private int next(){
+        return index = (index + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public AdvancedColor fromString(){
+        return AdvancedColor.fromString(strings[next()]);
+    }
+
+    @Benchmark
+    public AdvancedColor fromCompactString(){
+        return AdvancedColor.fromString(compactStrings[next()]);
+    }
+
+    @Benchmark
+    public AdvancedColor fromStringWithSplit(){
+        return splitParse(strings[next()]);
+    }
+
+    @Benchmark
+    public String asString(){
+        return advancedColors[next()].toString();
+    }
+
+    @Benchmark
+    public String asCompactString(){
+        return advancedColors[next()].toCompactString();
+    }
+
+    /** The parser before the compact form was added. */
+    private static AdvancedColor splitParse(String string){
+        String[] typeAndColors = string.split("A");
+        if (typeAndColors.length != 2)
+            return new AdvancedColor(string);
+        int colorType;
+        try {
+            colorType = Integer.parseInt(typeAndColors[0]);
+        } catch (NumberFormatException e){
+            return new AdvancedColor(string);
+        }
+        String[] stringColors = typeAndColors[1].split("B");
+        if (stringColors.length < 1)
+            return new AdvancedColor(string);
+        int colors[] = new int[stringColors.length];
+        try {
+            for (int i = 0; i < colors.length; i++)
+                colors[i] = Integer.parseInt(stringColors[i]);
+        } catch (NumberFormatException e){
+            return new AdvancedColor(string);
+        }
+        return new AdvancedColor(colorType, colors);
+    }
+}
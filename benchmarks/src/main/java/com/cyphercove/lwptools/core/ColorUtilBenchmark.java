@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Color;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HSV helpers of {@link ColorUtil} on a libGDX Color, and the saturation preserving blend of
+ * Android Color ints, both singly and into a gradient.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColorUtilBenchmark {
+
+    private static final int COUNT = 1024;
+    private static final int GRADIENT_SIZE = 64;
+
+    private final int[] colors = new int[COUNT];
+    private final float[] amounts = new float[COUNT];
+    private final Color color = new Color();
+    private final int[] gradient = new int[GRADIENT_SIZE];
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0);
+        for (int i = 0; i < COUNT; i++){
+            colors[i] = random.nextInt();
+            amounts[i] = random.nextFloat();
+        }
+    }
+
+    private int next(){
+        return index = (index + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public Color shiftHue(){
+        int i = next();
+        return ColorUtil.shiftHue(ColorUtil.fromAndroidInt(colors[i], color), amounts[i] * 360);
+    }
+
+    @Benchmark
+    public Color scaleSaturation(){
+        int i = next();
+        return ColorUtil.scaleSaturation(ColorUtil.fromAndroidInt(colors[i], color), amounts[i]);
+    }
+
+    @Benchmark
+    public Color scaleValue(){
+        int i = next();
+        return ColorUtil.scaleValue(ColorUtil.fromAndroidInt(colors[i], color), amounts[i]);
+    }
+
+    @Benchmark
+    public Color maximizeSaturation(){
+        return ColorUtil.maximizeSaturation(ColorUtil.fromAndroidInt(colors[next()], color));
+    }
+
+    @Benchmark
+    public Color maximizeBrightness(){
+        return ColorUtil.maximizeBrightness(ColorUtil.fromAndroidInt(colors[next()], color));
+    }
+
+    @Benchmark
+    public int blendPreservingLerpedSaturation(){
+        int i = next();
+        return ColorUtil.blendAndroidIntsPreservingLerpedSaturation(colors[i], colors[(i + 1) & (COUNT - 1)],
+                amounts[i]);
+    }
+
+    /** Fills a gradient of {@value #GRADIENT_SIZE} colors per operation. */
+    @Benchmark
+    public int[] blendPreservingLerpedSaturationGradient(){
+        int i = next();
+        ColorUtil.blendAndroidIntsPreservingLerpedSaturation(colors[i], colors[(i + 1) & (COUNT - 1)],
+                gradient, 0, GRADIENT_SIZE);
+        return gradient;
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computing the kernel weights and offsets for a new radius, as done when the radius changes every
+ * frame, directly with {@link GaussianKernelTable#calculateKernel} and from a
+ * {@link GaussianKernelTable}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GaussianKernelBenchmark {
+
+    private static final int COUNT = 1024;
+
+    @Param({"8", "16", "32"})
+    public int maxRadius;
+
+    private final float[] sigmas = new float[COUNT];
+    private float[] tmpArray;
+    private float[] weights;
+    private float[] offsets;
+    private GaussianKernelTable table;
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0);
+        for (int i = 0; i < COUNT; i++)
+            sigmas[i] = GaussianBlur.MIN_SIGMA + random.nextFloat() * (maxRadius / 3f - GaussianBlur.MIN_SIGMA);
+        tmpArray = new float[maxRadius + 1];
+        weights = new float[maxRadius / 2];
+        offsets = new float[maxRadius / 2];
+        table = new GaussianKernelTable(maxRadius);
+    }
+
+    private int next(){
+        return index = (index + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public float calculateKernel(){
+        return GaussianKernelTable.calculateKernel(sigmas[next()], maxRadius, tmpArray, weights, offsets);
+    }
+
+    @Benchmark
+    public float lookup(){
+        return table.lookup(sigmas[next()], weights, offsets);
+    }
+}
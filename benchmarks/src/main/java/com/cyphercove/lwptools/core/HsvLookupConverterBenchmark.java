@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** {@link HsvLookupConverter} against the exact conversions of {@link IntColor}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HsvLookupConverterBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private final int[] colors = new int[COUNT];
+    private final float[] hsvs = new float[COUNT * 3];
+    private final float[] hsv = new float[3];
+    private final HsvLookupConverter converter = new HsvLookupConverter();
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0);
+        for (int i = 0; i < COUNT; i++){
+            colors[i] = random.nextInt();
+            IntColor.colorToHSV(colors[i], hsv);
+            System.arraycopy(hsv, 0, hsvs, i * 3, 3);
+        }
+    }
+
+    private int next(){
+        return index = (index + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public float colorToHSVExact(){
+        IntColor.colorToHSV(colors[next()], hsv);
+        return hsv[0];
+    }
+
+    @Benchmark
+    public float colorToHSVLookup(){
+        converter.colorToHSV(colors[next()], hsv);
+        return hsv[0];
+    }
+
+    @Benchmark
+    public int HSVToColorExact(){
+        int i = next() * 3;
+        return IntColor.HSVToColor(0xFF, hsvs[i], hsvs[i + 1], hsvs[i + 2]);
+    }
+
+    @Benchmark
+    public int HSVToColorLookup(){
+        int i = next() * 3;
+        return converter.HSVToColor(0xFF, hsvs[i], hsvs[i + 1], hsvs[i + 2]);
+    }
+}
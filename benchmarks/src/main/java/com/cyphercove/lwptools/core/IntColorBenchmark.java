@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Conversions and parsing of {@link IntColor}, one color per operation. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntColorBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private final int[] colors = new int[COUNT];
+    private final float[] hsvs = new float[COUNT * 3];
+    private final String[] colorStrings = new String[COUNT];
+    private final float[] hsv = new float[3];
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0);
+        String[] names = {"red", "blue", "green", "black", "white", "gray", "cyan", "magenta",
+                "yellow", "lightgray", "darkgray", "grey", "lightgrey", "darkgrey", "aqua", "fuchsia"};
+        for (int i = 0; i < COUNT; i++){
+            colors[i] = random.nextInt();
+            IntColor.colorToHSV(colors[i], hsv);
+            System.arraycopy(hsv, 0, hsvs, i * 3, 3);
+            switch (i % 3){
+                case 0:
+                    colorStrings[i] = String.format("#%06X", colors[i] & 0xFFFFFF);
+                    break;
+                case 1:
+                    colorStrings[i] = String.format("#%08X", colors[i]);
+                    break;
+                default:
+                    colorStrings[i] = names[i % names.length];
+            }
+        }
+    }
+
+    private int next(){
+        return index = (index + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public float colorToHSV(){
+        IntColor.colorToHSV(colors[next()], hsv);
+        return hsv[0];
+    }
+
+    @Benchmark
+    public int HSVToColor(){
+        int i = next() * 3;
+        return IntColor.HSVToColor(0xFF, hsvs[i], hsvs[i + 1], hsvs[i + 2]);
+    }
+
+    @Benchmark
+    public int parseColor(){
+        return IntColor.parseColor(colorStrings[next()]);
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.cyphercove.lwptools.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blurring a 256x256 RGBA image with {@link PlanarCpuBlur} and with {@link CpuGaussianBlur}, on the
+ * default pool and on one thread. Each blurs in its own pixel format. The box blur is three passes
+ * at a box radius near sigma, which approximates the Gaussian blur. Images are large enough that
+ * throughput is reported per millisecond.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlanarCpuBlurBenchmark {
+
+    private static final int SIZE = 256;
+
+    @Param({"4", "16", "32"})
+    public int radius;
+
+    private int[] argb;
+    private float[] planes;
+    private CpuGaussianBlur cpuBlur;
+    private CpuGaussianBlur singleThreadCpuBlur;
+    private ForkJoinPool singleThreadPool;
+    private PlanarCpuBlur planarBlur;
+    private int boxRadius;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0);
+        argb = new int[SIZE * SIZE];
+        for (int i = 0; i < argb.length; i++)
+            argb[i] = random.nextInt();
+        planes = new float[SIZE * SIZE * 4];
+        for (int i = 0; i < planes.length; i++)
+            planes[i] = random.nextInt(256);
+        cpuBlur = new CpuGaussianBlur(GaussianBlur.MAX_RADIUS);
+        singleThreadPool = new ForkJoinPool(1);
+        singleThreadCpuBlur = new CpuGaussianBlur(GaussianBlur.MAX_RADIUS, singleThreadPool);
+        planarBlur = new PlanarCpuBlur(GaussianBlur.MAX_RADIUS);
+        planarBlur.setRadius(radius);
+        boxRadius = Math.max(1, Math.round(radius / 3f));
+    }
+
+    @TearDown
+    public void tearDown(){
+        cpuBlur.dispose();
+        singleThreadCpuBlur.dispose();
+        singleThreadPool.shutdown();
+    }
+
+    @Benchmark
+    public int[] cpuGaussianBlur(){
+        cpuBlur.blur(argb, SIZE, SIZE, radius);
+        return argb;
+    }
+
+    @Benchmark
+    public int[] cpuGaussianBlurSingleThread(){
+        singleThreadCpuBlur.blur(argb, SIZE, SIZE, radius);
+        return argb;
+    }
+
+    @Benchmark
+    public float[] planarGaussianBlur(){
+        planarBlur.blur(planes, 4, SIZE, SIZE);
+        return planes;
+    }
+
+    @Benchmark
+    public float[] planarBoxBlur(){
+        for (int i = 0; i < 3; i++)
+            planarBlur.boxBlur(planes, 4, SIZE, SIZE, boxRadius);
+        return planes;
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.android.prefs;
+
+import com.badlogic.gdx.graphics.Color;
+import com.cyphercove.lwptools.core.IntColor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdvancedColorSetTest {
+
+    private static final int RED = 0xffff0000;
+    private static final int GREEN = 0xff00ff00;
+    private static final int BLUE = 0xff0000ff;
+
+    @Test
+    public void bakedRampIsCopiedWhenAdded(){
+        AdvancedColor advancedColor = new AdvancedColor(AdvancedColor.ColorType.BATTERY_LEVEL_BASED, RED, GREEN);
+        advancedColor.bakeBatteryLevelRamp(16, AdvancedColor.BlendMode.LERPED_SATURATION);
+        AdvancedColorSet set = new AdvancedColorSet();
+        Color target = new Color();
+        set.add(advancedColor, target);
+        set.update(0f, false);
+        assertEquals(IntColor.rgba(RED), Color.rgba8888(target));
+
+        //Rebaking at the same size reuses the AdvancedColor's array.
+        advancedColor.getColors()[0] = BLUE;
+        advancedColor.bakeBatteryLevelRamp(16, AdvancedColor.BlendMode.LERPED_SATURATION);
+        set.invalidate();
+        set.update(0f, false);
+        assertEquals(IntColor.rgba(RED), Color.rgba8888(target));
+
+        set.set(0, advancedColor);
+        set.update(0f, false);
+        assertEquals(IntColor.rgba(BLUE), Color.rgba8888(target));
+    }
+}
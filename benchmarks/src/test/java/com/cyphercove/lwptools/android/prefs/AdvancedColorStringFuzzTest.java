@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.android.prefs;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Fuzzes {@link AdvancedColor#fromString(String)} against the String.split() parser it replaced,
+ * and round trips random AdvancedColors through both string forms.
+ */
+public class AdvancedColorStringFuzzTest {
+
+    private static final int CASES = 300000;
+    private static final String FUZZ_CHARACTERS = "0123456789AB-+x ";
+    private static final String COMPACT_FUZZ_CHARACTERS = "0123456789abcdefABCDEFgx~";
+
+    /** The parser before the compact form was added. */
+    private static AdvancedColor splitParse(String string){
+        String[] typeAndColors = string.split("A");
+        if (typeAndColors.length != 2)
+            return new AdvancedColor(string);
+        int colorType;
+        try {
+            colorType = Integer.parseInt(typeAndColors[0]);
+        } catch (NumberFormatException e){
+            return new AdvancedColor(string);
+        }
+        String[] stringColors = typeAndColors[1].split("B");
+        if (stringColors.length < 1)
+            return new AdvancedColor(string);
+        int colors[] = new int[stringColors.length];
+        try {
+            for (int i = 0; i < colors.length; i++)
+                colors[i] = Integer.parseInt(stringColors[i]);
+        } catch (NumberFormatException e){
+            return new AdvancedColor(string);
+        }
+        return new AdvancedColor(colorType, colors);
+    }
+
+    private static String describe(AdvancedColor advancedColor){
+        if (advancedColor.getColorType() == AdvancedColor.ColorType.NOT_A_COLOR)
+            return "not a color: " + advancedColor;
+        return advancedColor.getColorType() + " " + Arrays.toString(advancedColor.getColors());
+    }
+
+    @Test
+    public void readsLikeSplitParser(){
+        Random random = new Random(9);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < CASES; i++){
+            sb.setLength(0);
+            if (random.nextBoolean()){
+                //Random characters, mostly not colors.
+                int length = random.nextInt(12);
+                for (int k = 0; k < length; k++)
+                    sb.append(FUZZ_CHARACTERS.charAt(random.nextInt(FUZZ_CHARACTERS.length())));
+            } else {
+                //Well formed, with random trailing separators.
+                sb.append(random.nextInt(3)).append('A');
+                int count = 1 + random.nextInt(3);
+                for (int k = 0; k < count; k++){
+                    if (k > 0)
+                        sb.append('B');
+                    sb.append(random.nextInt());
+                }
+                int trailing = random.nextInt(4) - 2;
+                for (int k = 0; k < trailing; k++)
+                    sb.append(random.nextBoolean() ? 'A' : 'B');
+            }
+            String string = sb.toString();
+            assertEquals(string, describe(splitParse(string)), describe(AdvancedColor.fromString(string)));
+        }
+    }
+
+    @Test
+    public void readsOnlyWellFormedCompactStrings(){
+        Random random = new Random(11);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < CASES; i++){
+            sb.setLength(0);
+            sb.append('~');
+            int length = random.nextBoolean() ? random.nextInt(30) : 1 + 8 * random.nextInt(4);
+            boolean hex = true;
+            for (int k = 0; k < length; k++){
+                char c = random.nextInt(8) == 0 ?
+                        COMPACT_FUZZ_CHARACTERS.charAt(random.nextInt(COMPACT_FUZZ_CHARACTERS.length())) :
+                        COMPACT_FUZZ_CHARACTERS.charAt(random.nextInt(22));
+                hex &= Character.digit(c, 16) >= 0;
+                sb.append(c);
+            }
+            String string = sb.toString();
+            boolean wellFormed = hex && length >= 9 && (length - 1) % 8 == 0;
+            AdvancedColor advancedColor = AdvancedColor.fromString(string);
+            if (wellFormed){
+                int[] colors = new int[(length - 1) / 8];
+                for (int k = 0; k < colors.length; k++)
+                    colors[k] = (int)Long.parseLong(string.substring(2 + k * 8, 10 + k * 8), 16);
+                AdvancedColor expected = new AdvancedColor(Character.digit(string.charAt(1), 16), colors);
+                assertEquals(string, describe(expected), describe(advancedColor));
+            } else {
+                assertEquals(string, AdvancedColor.ColorType.NOT_A_COLOR, advancedColor.getColorType());
+                assertEquals(string, advancedColor.toString());
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsThroughBothForms(){
+        Random random = new Random(10);
+        for (int i = 0; i < CASES; i++){
+            int colorType = random.nextInt(3);
+            int[] colors = new int[colorType == AdvancedColor.ColorType.CONSTANT ? 1 : 2 + random.nextInt(2)];
+            for (int k = 0; k < colors.length; k++)
+                colors[k] = random.nextInt();
+            AdvancedColor advancedColor = new AdvancedColor(colorType, colors.clone());
+
+            AdvancedColor fromLegacy = AdvancedColor.fromString(advancedColor.toString());
+            assertEquals(colorType, fromLegacy.getColorType());
+            assertArrayEquals(advancedColor.getColors(), fromLegacy.getColors());
+            assertEquals(advancedColor.toString(), splitParse(advancedColor.toString()).toString());
+
+            AdvancedColor fromCompact = AdvancedColor.fromString(advancedColor.toCompactString());
+            assertEquals(colorType, fromCompact.getColorType());
+            assertArrayEquals(advancedColor.getColors(), fromCompact.getColors());
+        }
+    }
+
+    @Test
+    public void nonColorModesRoundTrip(){
+        AdvancedColor advancedColor = new AdvancedColor("random");
+        assertEquals("random", advancedColor.toString());
+        assertEquals("random", advancedColor.toCompactString());
+        assertEquals(AdvancedColor.ColorType.NOT_A_COLOR, AdvancedColor.fromString("random").getColorType());
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.android.prefs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdvancedColorTest {
+
+    private static final int RED = 0xffff0000;
+    private static final int GREEN = 0xff00ff00;
+
+    @Test
+    public void bakedRampEndsAtBatteryLevelColors(){
+        AdvancedColor advancedColor = new AdvancedColor(AdvancedColor.ColorType.BATTERY_LEVEL_BASED, RED, GREEN);
+        for (int size = 2; size <= 256; size *= 2){
+            int[] ramp = advancedColor.bakeBatteryLevelRamp(size, AdvancedColor.BlendMode.LERPED_SATURATION);
+            assertEquals(size, ramp.length);
+            assertEquals(RED, ramp[0]);
+            assertEquals(GREEN, ramp[size - 1]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bakedRampOfOneColorIsRejected(){
+        new AdvancedColor(AdvancedColor.ColorType.BATTERY_LEVEL_BASED, RED, GREEN)
+                .bakeBatteryLevelRamp(1, AdvancedColor.BlendMode.LERPED_SATURATION);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bakedRampOfNoColorsIsRejected(){
+        new AdvancedColor(AdvancedColor.ColorType.BATTERY_LEVEL_BASED, RED, GREEN)
+                .bakeBatteryLevelRamp(0, AdvancedColor.BlendMode.LERPED_SATURATION);
+    }
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Color;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the thread safe ColorUtil methods from many threads at once and checks every result against
+ * one computed on a single thread. Shared scratch state would make results from one thread leak
+ * into another's.
+ */
+public class ColorUtilConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int INPUTS = 4096;
+    private static final int ROUNDS = 25;
+    private static final int OPERATIONS = 9;
+    private static final int GRADIENT_SIZE = 16;
+
+    private final int[] colorsOne = new int[INPUTS];
+    private final int[] colorsTwo = new int[INPUTS];
+    private final float[] amounts = new float[INPUTS];
+
+    /** Computes one operation on one input, with its own Colors and arrays, and returns a hash of
+     * the exact result. */
+    private int compute(int operation, int i, Color one, Color two, Color dst, int[] gradient){
+        int colorOne = colorsOne[i];
+        int colorTwo = colorsTwo[i];
+        float amount = amounts[i];
+        switch (operation){
+            case 0:
+                return ColorUtil.blendAndroidIntsPreservingLerpedSaturation(colorOne, colorTwo, amount);
+            case 1:
+                ColorUtil.blendAndroidIntsPreservingLerpedSaturation(colorOne, colorTwo, gradient, 0, GRADIENT_SIZE);
+                int hash = 0;
+                for (int color : gradient)
+                    hash = hash * 31 + color;
+                return hash;
+            case 2:
+                return hash(ColorUtil.fromAndroidInt(colorOne, dst));
+            case 3:
+                return hash(ColorUtil.fromHex(colorOne & 0xFFFFFFFFL, dst));
+            case 4:
+                return hash(ColorUtil.fromAndroidIntToSaturated(colorOne, dst));
+            case 5:
+                ColorUtil.fromAndroidInt(colorOne, one);
+                ColorUtil.fromAndroidInt(colorTwo, two);
+                return hash(ColorUtil.blend(one, two, amount, dst));
+            case 6:
+                ColorUtil.fromAndroidInt(colorOne, one);
+                ColorUtil.fromAndroidInt(colorTwo, two);
+                return hash(ColorUtil.blendPreservingAveragedSaturation(one, two, amount, dst));
+            case 7:
+                return hash(ColorUtil.shiftHue(ColorUtil.fromAndroidInt(colorOne, dst), amount * 360));
+            default:
+                return hash(ColorUtil.scaleSaturation(ColorUtil.fromAndroidInt(colorOne, dst), amount));
+        }
+    }
+
+    private static int hash(Color color){
+        int hash = Float.floatToIntBits(color.r);
+        hash = hash * 31 + Float.floatToIntBits(color.g);
+        hash = hash * 31 + Float.floatToIntBits(color.b);
+        return hash * 31 + Float.floatToIntBits(color.a);
+    }
+
+    @Test
+    public void noCrossTalkBetweenThreads() throws Exception {
+        Random random = new Random(0);
+        for (int i = 0; i < INPUTS; i++){
+            colorsOne[i] = random.nextInt();
+            colorsTwo[i] = random.nextInt();
+            amounts[i] = random.nextFloat();
+        }
+        final int[] expected = new int[OPERATIONS * INPUTS];
+        Color one = new Color(), two = new Color(), dst = new Color();
+        int[] gradient = new int[GRADIENT_SIZE];
+        for (int operation = 0; operation < OPERATIONS; operation++){
+            for (int i = 0; i < INPUTS; i++)
+                expected[operation * INPUTS + i] = compute(operation, i, one, two, dst, gradient);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] futures = new Future<?>[THREADS];
+        for (int t = 0; t < THREADS; t++){
+            final long seed = t;
+            futures[t] = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Random random = new Random(seed);
+                    Color one = new Color(), two = new Color(), dst = new Color();
+                    int[] gradient = new int[GRADIENT_SIZE];
+                    start.await();
+                    for (int n = 0; n < ROUNDS * INPUTS; n++){
+                        //Interleave different operations so they use the scratch state differently.
+                        int operation = random.nextInt(OPERATIONS);
+                        int i = random.nextInt(INPUTS);
+                        int result = compute(operation, i, one, two, dst, gradient);
+                        assertEquals("Operation " + operation + " on input " + i,
+                                expected[operation * INPUTS + i], result);
+                    }
+                    return null;
+                }
+            });
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures)
+                future.get(); //rethrows assertion failures
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Color;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColorUtilTest {
+
+    private static final float EPSILON = 1e-5f;
+
+    /** Rounding in toHSV can produce a hue of exactly 360, which hsvToRGB used to turn into black. */
+    @Test
+    public void hueJustBelowRedWraps(){
+        float[] hsv = new float[3];
+        ColorUtil.toHSV(1f, 0.5f, Math.nextUp(0.5f), hsv);
+        assertTrue("Hue " + hsv[0] + " is outside [0, 360)", hsv[0] >= 0 && hsv[0] < 360);
+
+        Color color = ColorUtil.setHSV(new Color(), hsv);
+        assertEquals(1f, color.r, EPSILON);
+        assertEquals(0.5f, color.g, EPSILON);
+        assertEquals(0.5f, color.b, EPSILON);
+    }
+
+    @Test
+    public void hueOf360IsRed(){
+        float[] rgb = new float[3];
+        ColorUtil.hsvToRGB(360f, 1f, 1f, rgb, 0);
+        assertEquals(1f, rgb[0], EPSILON);
+        assertEquals(0f, rgb[1], EPSILON);
+        assertEquals(0f, rgb[2], EPSILON);
+    }
+
+    @Test
+    public void hsvRoundTrip(){
+        Random random = new Random(0);
+        float[] hsv = new float[3];
+        Color color = new Color();
+        for (int i = 0; i < 100000; i++){
+            float r = random.nextFloat(), g = random.nextFloat(), b = random.nextFloat();
+            ColorUtil.toHSV(r, g, b, hsv);
+            assertTrue(hsv[0] >= 0 && hsv[0] < 360);
+            ColorUtil.setHSV(color, hsv);
+            assertEquals(r, color.r, EPSILON);
+            assertEquals(g, color.g, EPSILON);
+            assertEquals(b, color.b, EPSILON);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.cyphercove.lwptools.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/** Checks CpuGaussianBlur against a recorded image, across pool sizes, and at its edge cases. */
+public class CpuGaussianBlurTest {
+
+    /**
+     * A white pixel at the center of an opaque black image, and a translucent red one in the top
+     * left corner, blurred at radius 3. The center is close to 255 / (2 pi sigma^2) for sigma 1.
+     */
+    private static final int[] GOLDEN = {
+            0xc17d0000, 0xe4360000, 0xfa0b0000, 0xff010000, 0xff000000, 0xff000000, 0xff000000, 0xff000000, 0xff000000,
+            0xe4360000, 0xf4170000, 0xfd050101, 0xff040303, 0xff060505, 0xff030303, 0xff010101, 0xff000000, 0xff000000,
+            0xfa0a0000, 0xfd050000, 0xff040303, 0xff0f0f0f, 0xff191919, 0xff0f0f0f, 0xff030303, 0xff000000, 0xff000000,
+            0xff010000, 0xff010000, 0xff060505, 0xff191919, 0xff292929, 0xff191919, 0xff050505, 0xff000000, 0xff000000,
+            0xff000000, 0xff000000, 0xff030303, 0xff0f0f0f, 0xff191919, 0xff0f0f0f, 0xff030303, 0xff000000, 0xff000000,
+            0xff000000, 0xff000000, 0xff010101, 0xff030303, 0xff050505, 0xff030303, 0xff010101, 0xff000000, 0xff000000,
+            0xff000000, 0xff000000, 0xff000000, 0xff000000, 0xff000000, 0xff000000, 0xff000000, 0xff000000, 0xff000000,
+    };
+
+    @Test
+    public void matchesGoldenImage(){
+        int width = 9, height = 7;
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++)
+            argb[i] = 0xff000000;
+        argb[3 * width + 4] = 0xffffffff;
+        argb[0] = 0x80ff0000;
+        CpuGaussianBlur blur = new CpuGaussianBlur(4);
+        blur.blur(argb, width, height, 3f);
+        blur.dispose();
+        assertArrayEquals(GOLDEN, argb);
+    }
+
+    @Test
+    public void parallelMatchesSingleThreaded(){
+        int width = 301, height = 203; //many stripes, with a remainder
+        int[] parallel = randomImage(width * height, 1);
+        int[] singleThreaded = parallel.clone();
+
+        CpuGaussianBlur parallelBlur = new CpuGaussianBlur(32);
+        parallelBlur.blur(parallel, width, height, 20f);
+        parallelBlur.dispose();
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        CpuGaussianBlur singleThreadedBlur = new CpuGaussianBlur(32, pool);
+        singleThreadedBlur.blur(singleThreaded, width, height, 20f);
+        singleThreadedBlur.dispose();
+        pool.shutdown();
+
+        assertArrayEquals(singleThreaded, parallel);
+    }
+
+    @Test
+    public void singlePixelIsUnchanged(){
+        int[] argb = {0x80c04020};
+        CpuGaussianBlur blur = new CpuGaussianBlur(16);
+        blur.blur(argb, 1, 1, 16f);
+        blur.dispose();
+        assertEquals(0x80c04020, argb[0]);
+    }
+
+    @Test
+    public void radiusTooSmallToBlurLeavesImageUnchanged(){
+        int[] argb = randomImage(32 * 16, 2);
+        int[] original = argb.clone();
+        CpuGaussianBlur blur = new CpuGaussianBlur(8);
+        blur.blur(argb, 32, 16, 0f);
+        assertArrayEquals(original, argb);
+        blur.blur(argb, 32, 16, 3f * GaussianBlur.MIN_SIGMA * 0.99f);
+        assertArrayEquals(original, argb);
+        blur.dispose();
+    }
+
+    /** With clamped borders, pixels beyond the edges repeat it, so an edge doesn't darken. */
+    @Test
+    public void bordersAreClamped(){
+        int width = 64, height = 48;
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++){
+            for (int x = 0; x < width; x++)
+                argb[y * width + x] = x < width / 2 ? 0xffffffff : 0xff000000;
+        }
+        CpuGaussianBlur blur = new CpuGaussianBlur(16);
+        blur.blur(argb, width, height, 8f);
+        blur.dispose();
+        for (int y = 0; y < height; y++){
+            assertEquals("Row " + y, 0xffffffff, argb[y * width]);
+            assertEquals("Row " + y, 0xff000000, argb[y * width + width - 1]);
+        }
+    }
+
+    private static int[] randomImage(int count, long seed){
+        Random random = new Random(seed);
+        int[] argb = new int[count];
+        for (int i = 0; i < count; i++)
+            argb[i] = random.nextInt();
+        return argb;
+    }
+}
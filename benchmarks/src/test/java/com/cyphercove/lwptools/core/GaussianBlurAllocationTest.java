@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a frame of GaussianBlur, with the radius and scene depth animated, allocates nothing
+ * once its frame buffers exist. Runs on a headless application with {@link NullGL20}, so it covers
+ * the CPU side of each frame but not the driver. The build runs it interpreted, so every allocation
+ * in the source is counted.
+ */
+public class GaussianBlurAllocationTest {
+
+    private static final int FRAMES = 200;
+
+    private static HeadlessApplication application;
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    @BeforeClass
+    public static void setup(){
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.updatesPerSecond = -1; //never calls render()
+        application = new HeadlessApplication(new ApplicationAdapter(){}, config);
+        Gdx.gl = Gdx.gl20 = new NullGL20();
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean)bean;
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @AfterClass
+    public static void teardown(){
+        if (application != null)
+            application.exit();
+        Gdx.gl = Gdx.gl20 = null;
+    }
+
+    private static long allocatedBytes(){
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** @return The bytes allocated by the frames, less those allocated by measuring. */
+    private static long measureFrames(GaussianBlur blur){
+        long overhead = -allocatedBytes();
+        overhead += allocatedBytes();
+        long start = allocatedBytes();
+        for (int i = 0; i < FRAMES; i++)
+            frame(blur, i);
+        return allocatedBytes() - start - overhead;
+    }
+
+    private static void frame(GaussianBlur blur, int i){
+        float t = (i % 50) / 50f;
+        blur.setTextureToSceneDepth(0.25f + 0.5f * t);
+        blur.setRadius(4f + 8f * t);
+        blur.begin();
+        blur.end();
+        blur.render();
+    }
+
+    private static void assertFramesDoNotAllocate(GaussianBlur blur, int width, int height){
+        blur.resize(width, height);
+        for (int i = 0; i < FRAMES; i++) //obtains pooled frame buffers and warms up
+            frame(blur, i);
+        assertEquals("Bytes allocated by " + FRAMES + " frames at " + width + "x" + height,
+                0L, measureFrames(blur));
+    }
+
+    private static void assertFramesDoNotAllocate(GaussianBlur blur){
+        assertFramesDoNotAllocate(blur, 256, 128);
+        blur.dispose();
+    }
+
+    @Test
+    public void framesDoNotAllocate(){
+        assertFramesDoNotAllocate(new GaussianBlur(16, false, false));
+    }
+
+    @Test
+    public void framesWithDepthAndInverseTargetDoNotAllocate(){
+        GaussianBlur blur = new GaussianBlur(16, true, true);
+        assertFramesDoNotAllocate(blur, 256, 128);
+        assertFalse(blur.isUsingInverseTarget());
+
+        blur.resize(128, 256); //swapped dimensions switch to the inverse target
+        assertTrue(blur.isUsingInverseTarget());
+        assertFramesDoNotAllocate(blur, 128, 256);
+        blur.dispose();
+    }
+
+    private static void assertFusedFramesDoNotAllocate(BlurAlgorithm algorithm){
+        GaussianBlur blur = new GaussianBlur(false, false, algorithm);
+        blur.setFusedComposite(true);
+        assertFramesDoNotAllocate(blur);
+    }
+
+    @Test
+    public void fusedLinearGaussianFramesDoNotAllocate(){
+        assertFusedFramesDoNotAllocate(new LinearGaussianBlurAlgorithm(16, new GaussianBlurShaderProvider()));
+    }
+
+    @Test
+    public void fusedDualKawaseFramesDoNotAllocate(){
+        assertFusedFramesDoNotAllocate(new DualKawaseBlurAlgorithm(4, 8, new GaussianBlurShaderProvider()));
+    }
+
+    @Test
+    public void fusedBoxFramesDoNotAllocate(){
+        assertFusedFramesDoNotAllocate(new BoxBlurAlgorithm(2, 3, 8, new GaussianBlurShaderProvider()));
+    }
+
+    @Test
+    public void fusedMipChainFramesDoNotAllocate(){
+        assertFusedFramesDoNotAllocate(new MipChainBlurAlgorithm(3, 16, 8, new GaussianBlurShaderProvider()));
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.cyphercove.lwptools.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** Checks GaussianBlurReference on its own and against CpuGaussianBlur. */
+public class GaussianBlurReferenceTest {
+
+    private static final int WIDTH = 41;
+    private static final int HEIGHT = 29;
+
+    @Test
+    public void uniformImageIsUnchanged(){
+        float[] pixels = new float[WIDTH * HEIGHT * 4];
+        for (int i = 0; i < pixels.length; i++)
+            pixels[i] = 100f + i % 4;
+        GaussianBlurReference.blur(pixels, WIDTH, HEIGHT, 16, 12f);
+        for (int i = 0; i < pixels.length; i++)
+            assertEquals(100f + i % 4, pixels[i], 1e-3f);
+    }
+
+    @Test
+    public void matchesCpuGaussianBlur(){
+        float[] radii = {1f, 2.5f, 6f, 11f, 16f, 32f};
+        for (float radius : radii)
+            assertMatchesCpuGaussianBlur(32, radius);
+        //Beyond the range of the kernel table
+        assertMatchesCpuGaussianBlur(8, 3f);
+        assertMatchesCpuGaussianBlur(8, 20f);
+    }
+
+    private static void assertMatchesCpuGaussianBlur(int maxRadius, float radius){
+        int[] argb = new int[WIDTH * HEIGHT];
+        Random random = new Random(maxRadius * 31 + (int)radius);
+        for (int i = 0; i < argb.length; i++)
+            argb[i] = random.nextInt();
+
+        float[] pixels = new float[argb.length * 4];
+        for (int i = 0; i < argb.length; i++){
+            pixels[i * 4] = (argb[i] >>> 16) & 0xff;
+            pixels[i * 4 + 1] = (argb[i] >>> 8) & 0xff;
+            pixels[i * 4 + 2] = argb[i] & 0xff;
+            pixels[i * 4 + 3] = argb[i] >>> 24;
+        }
+        GaussianBlurReference.blur(pixels, WIDTH, HEIGHT, maxRadius, radius);
+
+        CpuGaussianBlur cpuBlur = new CpuGaussianBlur(maxRadius);
+        cpuBlur.blur(argb, WIDTH, HEIGHT, radius);
+        cpuBlur.dispose();
+
+        int[] shifts = {16, 8, 0, 24}; //the reference's RGBA order
+        for (int i = 0; i < argb.length; i++){
+            for (int c = 0; c < 4; c++){
+                int expected = Math.min(255, Math.max(0, Math.round(pixels[i * 4 + c])));
+                int actual = (argb[i] >>> shifts[c]) & 0xff;
+                assertEquals("Radius " + radius + ", pixel " + i + ", channel " + c, expected, actual);
+            }
+        }
+    }
+}
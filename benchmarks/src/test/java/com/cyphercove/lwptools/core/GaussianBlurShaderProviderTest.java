@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the generated blur pass sources for every max radius, with the varying count reported by
+ * the device ranging from below the GL ES 2.0 minimum to enough for every pair.
+ */
+public class GaussianBlurShaderProviderTest {
+
+    private static final int[] MAX_VARYING_VECTORS = {0, 8, 11, 16, 33, 64};
+
+    @After
+    public void teardown(){
+        Gdx.gl = Gdx.gl20 = null;
+    }
+
+    @Test
+    public void vec4CountHoldsEveryPair(){
+        for (int maxRadius = 2; maxRadius <= GaussianBlur.MAX_RADIUS; maxRadius += 2){
+            int pairs = maxRadius / 2;
+            int count = GaussianBlurShaderProvider.getBlurPassVec4Count(maxRadius);
+            assertTrue(count * 4 >= pairs);
+            assertTrue((count - 1) * 4 < pairs);
+        }
+    }
+
+    @Test
+    public void blurPassSourcesMatchKernel(){
+        for (int maxVaryingVectors : MAX_VARYING_VECTORS){
+            Gdx.gl = Gdx.gl20 = new FixedVaryingsGL20(maxVaryingVectors);
+            GaussianBlurShaderProvider provider = new GaussianBlurShaderProvider();
+            for (int maxRadius = 2; maxRadius <= GaussianBlur.MAX_RADIUS; maxRadius += 2)
+                assertBlurPassSourcesMatchKernel(provider, maxRadius, Math.max(8, maxVaryingVectors));
+        }
+    }
+
+    private static void assertBlurPassSourcesMatchKernel(GaussianBlurShaderProvider provider, int maxRadius,
+                                                         int maxVaryingVectors){
+        String[] sources = provider.generateBlurPassSources(maxRadius);
+        String vertex = sources[0];
+        String fragment = sources[1];
+        String message = "Max radius " + maxRadius + ", " + maxVaryingVectors + " varyings";
+        int pairs = maxRadius / 2;
+        int vec4Count = GaussianBlurShaderProvider.getBlurPassVec4Count(maxRadius);
+        int varyingPairs = Math.min(pairs, (maxVaryingVectors - 1) / 2);
+
+        //The uniforms set by the blur algorithms
+        for (String source : sources){
+            assertTrue(message, source.contains("uniform MEDP vec2 u_size;\n"));
+            assertTrue(message, source.contains("uniform MEDP vec4 u_offsets[" + vec4Count + "];\n"));
+        }
+        assertTrue(message, fragment.contains("uniform float u_weightAtCenter;\n"));
+        assertTrue(message, fragment.contains("uniform vec4 u_weights[" + vec4Count + "];\n"));
+
+        int varyingCount = 1 + 2 * varyingPairs;
+        assertTrue(message, varyingCount <= maxVaryingVectors);
+        String varyingDeclaration = "varying vec2 v_texCoords[" + varyingCount + "];\n";
+        assertTrue(message, vertex.contains(varyingDeclaration));
+        assertTrue(message, fragment.contains(varyingDeclaration));
+        for (int i = 0; i < varyingCount; i++)
+            assertEquals(message, 1, count(vertex, "v_texCoords[" + i + "] = "));
+
+        //Each pair is sampled on both sides. Its offset is applied in the vertex shader if it has
+        //varyings, or else in the fragment shader.
+        for (int i = 0; i < pairs; i++){
+            String element = "[" + (i / 4) + "]." + "xyzw".charAt(i % 4);
+            assertEquals(message, 2, count(fragment, "* u_weights" + element + ";"));
+            if (i < varyingPairs){
+                assertEquals(message, 2, count(vertex, "u_offsets" + element + ";"));
+                assertEquals(message, 0, count(fragment, "u_offsets" + element + ";"));
+            } else {
+                assertEquals(message, 0, count(vertex, "u_offsets" + element + ";"));
+                assertEquals(message, 1, count(fragment, "u_offsets" + element + ";"));
+            }
+        }
+        assertFalse(message, vertex.contains("u_offsets[" + vec4Count + "]."));
+        assertFalse(message, fragment.contains("u_offsets[" + vec4Count + "]."));
+        assertFalse(message, fragment.contains("u_weights[" + vec4Count + "]."));
+
+        assertEquals(message, 1 + 2 * pairs, count(fragment, "texture2D(u_texture, "));
+        assertEquals(message, varyingPairs < pairs, fragment.contains("vec2 offset;\n"));
+        assertEquals(message, 2 * (pairs - varyingPairs), count(fragment, "texture2D(u_texture, v_texCoords[0] "));
+    }
+
+    private static int count(String source, String part){
+        int count = 0;
+        for (int i = source.indexOf(part); i >= 0; i = source.indexOf(part, i + part.length()))
+            count++;
+        return count;
+    }
+
+    /** Reports a fixed GL_MAX_VARYING_VECTORS. */
+    private static class FixedVaryingsGL20 extends NullGL20 {
+        private final int maxVaryingVectors;
+
+        FixedVaryingsGL20(int maxVaryingVectors){
+            this.maxVaryingVectors = maxVaryingVectors;
+        }
+
+        @Override
+        public void glGetIntegerv(int pname, IntBuffer params) {
+            params.put(params.position(), pname == GL20.GL_MAX_VARYING_VECTORS ? maxVaryingVectors : 0);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Checks HsvLookupConverter against the exact conversions of IntColor. */
+public class HsvLookupConverterTest {
+
+    private static final int COUNT = 200000;
+
+    @Test
+    public void toHSVMatchesIntColor(){
+        HsvLookupConverter converter = new HsvLookupConverter();
+        Random random = new Random(0);
+        float[] expected = new float[3];
+        float[] actual = new float[3];
+        for (int i = 0; i < COUNT; i++){
+            int color = random.nextInt();
+            IntColor.colorToHSV(color, expected);
+            converter.colorToHSV(color, actual);
+            assertEquals(expected[0], actual[0], 1e-4f);
+            assertEquals(expected[1], actual[1], 1e-6f);
+            assertEquals(expected[2], actual[2], 1e-6f);
+        }
+    }
+
+    @Test
+    public void fromHSVIsWithinErrorBound(){
+        for (int size = 64; size <= 65536; size *= 16)
+            assertFromHSVWithinErrorBound(new HsvLookupConverter(size));
+        assertFromHSVWithinErrorBound(new HsvLookupConverter());
+    }
+
+    private static void assertFromHSVWithinErrorBound(HsvLookupConverter converter){
+        Random random = new Random(0);
+        float[] rgb = new float[3];
+        //Both round down to 8 bits, so they can also differ by one step from truncation.
+        float bound = converter.getMaxComponentError() * 255 + 1;
+        float maxError = 0;
+        for (int i = 0; i < COUNT; i++){
+            float h = random.nextFloat() * 360, s = random.nextFloat(), v = random.nextFloat();
+            ColorUtil.hsvToRGB(h, s, v, rgb, 0);
+            int color = converter.HSVToColor(0xFF, h, s, v);
+            int exact = IntColor.HSVToColor(0xFF, h, s, v);
+            maxError = Math.max(maxError, Math.abs(IntColor.red(color) - rgb[0] * 255));
+            maxError = Math.max(maxError, Math.abs(IntColor.green(color) - rgb[1] * 255));
+            maxError = Math.max(maxError, Math.abs(IntColor.blue(color) - rgb[2] * 255));
+            assertTrue(Math.abs(IntColor.red(color) - IntColor.red(exact)) <= bound);
+            assertTrue(Math.abs(IntColor.green(color) - IntColor.green(exact)) <= bound);
+            assertTrue(Math.abs(IntColor.blue(color) - IntColor.blue(exact)) <= bound);
+            assertEquals(0xFF, IntColor.alpha(color));
+        }
+        assertTrue("Error of " + maxError + " with hue table size " + converter.getHueTableSize(),
+                maxError <= bound);
+    }
+
+    @Test
+    public void defaultTableIsWithinOneStep(){
+        HsvLookupConverter converter = new HsvLookupConverter();
+        Random random = new Random(1);
+        for (int i = 0; i < COUNT; i++){
+            float h = random.nextFloat() * 360, s = random.nextFloat(), v = random.nextFloat();
+            int color = converter.HSVToColor(0xFF, h, s, v);
+            int exact = IntColor.HSVToColor(0xFF, h, s, v);
+            assertTrue(Math.abs(IntColor.red(color) - IntColor.red(exact)) <= 1);
+            assertTrue(Math.abs(IntColor.green(color) - IntColor.green(exact)) <= 1);
+            assertTrue(Math.abs(IntColor.blue(color) - IntColor.blue(exact)) <= 1);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.cyphercove.lwptools.core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks IntColor.parseColor against the HashMap based parser it replaced, for the formats both
+ * support. #RGB and 0x prefixed colors are new, so they aren't covered here.
+ */
+public class IntColorTest {
+
+    private static final String[] NAMES = {"black", "darkgray", "gray", "lightgray", "white", "red",
+            "green", "blue", "yellow", "cyan", "magenta"};
+
+    /**
+     * Except for the last few, each has the first and last letters and the length of a known name,
+     * so it hashes to that name's slot.
+     */
+    private static final String[] UNKNOWN_NAMES = {"grey", "blae", "rad", "brick", "whine", "given", "cyon",
+            "yarrow", "mascara", "lightgrey", "darkgrey", "GREY", "blUe_", "bluee", "re"};
+
+    private static final HashMap<String, Integer> BASELINE_NAMES = new HashMap<String, Integer>();
+
+    static {
+        BASELINE_NAMES.put("black", IntColor.BLACK);
+        BASELINE_NAMES.put("darkgray", IntColor.DKGRAY);
+        BASELINE_NAMES.put("gray", IntColor.GRAY);
+        BASELINE_NAMES.put("lightgray", IntColor.LTGRAY);
+        BASELINE_NAMES.put("white", IntColor.WHITE);
+        BASELINE_NAMES.put("red", IntColor.RED);
+        BASELINE_NAMES.put("green", IntColor.GREEN);
+        BASELINE_NAMES.put("blue", IntColor.BLUE);
+        BASELINE_NAMES.put("yellow", IntColor.YELLOW);
+        BASELINE_NAMES.put("cyan", IntColor.CYAN);
+        BASELINE_NAMES.put("magenta", IntColor.MAGENTA);
+    }
+
+    /** The parser before the perfect hash table. */
+    private static int baselineParseColor(String colorString) {
+        if (colorString.charAt(0) == '#') {
+            long color = Long.parseLong(colorString.substring(1), 16);
+            if (colorString.length() == 7) {
+                color |= 0x00000000ff000000;
+            } else if (colorString.length() != 9) {
+                throw new IllegalArgumentException("Unknown color");
+            }
+            return (int)color;
+        } else {
+            Integer color = BASELINE_NAMES.get(colorString.toLowerCase(Locale.US));
+            if (color != null) {
+                return color;
+            }
+        }
+        throw new IllegalArgumentException("Unknown color");
+    }
+
+    @Test
+    public void namesInAnyCaseMatchBaseline(){
+        for (String name : NAMES){
+            assertMatchesBaseline(name);
+            assertMatchesBaseline(name.toUpperCase(Locale.US));
+            StringBuilder mixedCase = new StringBuilder(name);
+            for (int i = 0; i < mixedCase.length(); i += 2)
+                mixedCase.setCharAt(i, Character.toUpperCase(mixedCase.charAt(i)));
+            assertMatchesBaseline(mixedCase.toString());
+        }
+    }
+
+    @Test
+    public void unknownNamesInOccupiedSlotsAreRejected(){
+        for (String name : UNKNOWN_NAMES){
+            assertMatchesBaseline(name);
+            assertRejected(name);
+        }
+        assertRejected("");
+    }
+
+    @Test
+    public void hexMatchesBaseline(){
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++){
+            int color = random.nextInt();
+            String rgb = String.format("#%06x", color & 0xffffff);
+            String argb = String.format("#%08x", color);
+            assertMatchesBaseline(rgb);
+            assertMatchesBaseline(rgb.toUpperCase(Locale.US));
+            assertMatchesBaseline(argb);
+            assertMatchesBaseline(argb.toUpperCase(Locale.US));
+        }
+        assertMatchesBaseline("#00000000");
+        assertMatchesBaseline("#ffffffff");
+        assertMatchesBaseline("#aBcDeF");
+    }
+
+    /** The old parser also accepted a sign, which Long.parseLong allows. */
+    @Test
+    public void invalidHexIsRejected(){
+        String[] invalid = {"#", "#1", "#12", "#1234", "#12345", "#1234567", "#123456789", "#12345g", "#gg0000",
+                "#12 456", "#ff00ff0z", "#-12345", "#+1234567", "#0x1234"};
+        for (String colorString : invalid)
+            assertRejected(colorString);
+    }
+
+    private static void assertMatchesBaseline(String colorString){
+        int expected;
+        try {
+            expected = baselineParseColor(colorString);
+        } catch (IllegalArgumentException e){
+            assertRejected(colorString);
+            return;
+        }
+        assertEquals(colorString, expected, IntColor.parseColor(colorString));
+        StringBuilder padded = new StringBuilder("#0").append(colorString).append("ff");
+        assertEquals(colorString, expected, IntColor.parseColor(padded, 2, 2 + colorString.length()));
+    }
+
+    /** Checks that the string is rejected, both whole and as a range of a longer sequence. */
+    private static void assertRejected(String colorString){
+        try {
+            IntColor.parseColor(colorString);
+            fail("Parsed " + colorString);
+        } catch (IllegalArgumentException expected){
+        }
+        try {
+            StringBuilder padded = new StringBuilder("#0").append(colorString).append("ff");
+            IntColor.parseColor(padded, 2, 2 + colorString.length());
+            fail("Parsed " + colorString + " in a range");
+        } catch (IllegalArgumentException expected){
+        }
+    }
+}
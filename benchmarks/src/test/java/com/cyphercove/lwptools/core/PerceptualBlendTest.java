@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Color;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Checks PerceptualBlend's conversions against exact math and its blends at known points. */
+public class PerceptualBlendTest {
+
+    @Test
+    public void cbrtIsWithinErrorBound(){
+        //Every 61st float, so each exponent is covered at many mantissas.
+        int end = Float.floatToRawIntBits(1f);
+        float maxError = 0;
+        for (int bits = Float.floatToRawIntBits(Float.MIN_NORMAL); bits <= end; bits += 61){
+            float x = Float.intBitsToFloat(bits);
+            double expected = Math.cbrt(x);
+            maxError = Math.max(maxError, (float)(Math.abs(PerceptualBlend.cbrt(x) - expected) / expected));
+        }
+        assertEquals(1f, PerceptualBlend.cbrt(1f), 1.8e-6f);
+        assertEquals(0f, PerceptualBlend.cbrt(0f), 0f);
+        assertTrue("Max relative error " + maxError, maxError <= 1.8e-6f);
+    }
+
+    @Test
+    public void linearRoundTripsEvery8BitValue(){
+        for (int i = 0; i < 256; i++){
+            float linear = PerceptualBlend.toLinear(i);
+            assertEquals(i, (int)(PerceptualBlend.fromLinear(linear) * 255 + 0.5f));
+            assertEquals(linear, PerceptualBlend.toLinear(i / 255f), 1e-6f);
+        }
+    }
+
+    @Test
+    public void blendsReturnEndpoints(){
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++){
+            int one = random.nextInt();
+            int two = random.nextInt();
+            assertEquals(one, PerceptualBlend.blendLinear(one, two, 0f));
+            assertEquals(two, PerceptualBlend.blendLinear(one, two, 1f));
+            assertEquals(one, PerceptualBlend.blendOklab(one, two, 0f));
+            assertEquals(two, PerceptualBlend.blendOklab(one, two, 1f));
+        }
+    }
+
+    @Test
+    public void blendsMatchKnownMidpoints(){
+        //Half of white in linear light is sRGB 188.
+        assertEquals(0x80bcbcbc, PerceptualBlend.blendLinear(0x00000000, 0xffffffff, 0.5f));
+        //Half of white's OKLab lightness is an eighth of it in linear light, sRGB 99.
+        assertEquals(0x80636363, PerceptualBlend.blendOklab(0x00000000, 0xffffffff, 0.5f));
+
+        Color color = new Color();
+        PerceptualBlend.blendLinear(Color.CLEAR, Color.WHITE, 0.5f, color);
+        assertEquals(188f / 255f, color.r, 0.5f / 255f);
+        assertEquals(0.5f, color.a, 0f);
+        PerceptualBlend.blendOklab(Color.BLACK, Color.WHITE, 0.5f, color);
+        assertEquals(99f / 255f, color.g, 0.5f / 255f);
+        assertEquals(1f, color.a, 0f);
+    }
+}
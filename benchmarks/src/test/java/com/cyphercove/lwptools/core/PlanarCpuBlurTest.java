@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.cyphercove.lwptools.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** Checks that PlanarCpuBlur's output is within one 8 bit step of the straightforward blurs. */
+public class PlanarCpuBlurTest {
+
+    private static final int WIDTH = 57;
+    private static final int HEIGHT = 43;
+
+    @Test
+    public void gaussianMatchesCpuGaussianBlur(){
+        float[] radii = {1f, 2.5f, 6f, 11f, 16f, 32f};
+        for (float radius : radii)
+            assertGaussianMatchesCpuGaussianBlur(32, radius);
+        //Beyond the range of the kernel table
+        assertGaussianMatchesCpuGaussianBlur(8, 20f);
+    }
+
+    private static void assertGaussianMatchesCpuGaussianBlur(int maxRadius, float radius){
+        int[] argb = new int[WIDTH * HEIGHT];
+        Random random = new Random(maxRadius * 31 + (int)radius);
+        for (int i = 0; i < argb.length; i++)
+            argb[i] = random.nextInt();
+
+        int[] shifts = {16, 8, 0, 24};
+        int planeSize = argb.length;
+        float[] planes = new float[planeSize * 4];
+        for (int p = 0; p < 4; p++){
+            for (int i = 0; i < planeSize; i++)
+                planes[p * planeSize + i] = (argb[i] >>> shifts[p]) & 0xff;
+        }
+        PlanarCpuBlur planarBlur = new PlanarCpuBlur(maxRadius);
+        planarBlur.setRadius(radius);
+        planarBlur.blur(planes, 4, WIDTH, HEIGHT);
+
+        CpuGaussianBlur cpuBlur = new CpuGaussianBlur(maxRadius);
+        cpuBlur.blur(argb, WIDTH, HEIGHT, radius);
+        cpuBlur.dispose();
+
+        for (int p = 0; p < 4; p++){
+            for (int i = 0; i < planeSize; i++){
+                int expected = (argb[i] >>> shifts[p]) & 0xff;
+                assertEquals("Radius " + radius + ", plane " + p + ", pixel " + i,
+                        expected, toByte(planes[p * planeSize + i]), 1);
+            }
+        }
+    }
+
+    @Test
+    public void boxBlurMatchesDirectAverage(){
+        int[] boxRadii = {1, 3, 10, WIDTH + 5};
+        for (int boxRadius : boxRadii){
+            int planeCount = 2;
+            float[] planes = new float[WIDTH * HEIGHT * planeCount];
+            Random random = new Random(boxRadius);
+            for (int i = 0; i < planes.length; i++)
+                planes[i] = random.nextInt(256);
+            float[] expected = directBoxBlur(planes, planeCount, boxRadius);
+
+            new PlanarCpuBlur(8).boxBlur(planes, planeCount, WIDTH, HEIGHT, boxRadius);
+            for (int i = 0; i < planes.length; i++){
+                assertEquals("Box radius " + boxRadius + ", index " + i,
+                        toByte(expected[i]), toByte(planes[i]), 1);
+            }
+        }
+    }
+
+    /** Averages every pixel of each box, with edges clamped. */
+    private static float[] directBoxBlur(float[] planes, int planeCount, int boxRadius){
+        int planeSize = WIDTH * HEIGHT;
+        float[] output = new float[planes.length];
+        float boxArea = (boxRadius * 2 + 1) * (boxRadius * 2 + 1);
+        for (int p = 0; p < planeCount; p++){
+            for (int y = 0; y < HEIGHT; y++){
+                for (int x = 0; x < WIDTH; x++){
+                    double sum = 0;
+                    for (int dy = -boxRadius; dy <= boxRadius; dy++){
+                        int sy = Math.min(Math.max(y + dy, 0), HEIGHT - 1);
+                        for (int dx = -boxRadius; dx <= boxRadius; dx++){
+                            int sx = Math.min(Math.max(x + dx, 0), WIDTH - 1);
+                            sum += planes[p * planeSize + sy * WIDTH + sx];
+                        }
+                    }
+                    output[p * planeSize + y * WIDTH + x] = (float)(sum / boxArea);
+                }
+            }
+        }
+        return output;
+    }
+
+    private static int toByte(float value){
+        return Math.min(255, Math.max(0, Math.round(value)));
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+/**
+ * A {@link BlurAlgorithm} whose passes can be split into stages that are done on consecutive
+ * frames, so {@link GaussianBlur#setAmortized(boolean)} can spread out the cost of a blur.
+ */
+public interface AmortizableBlurAlgorithm extends BlurAlgorithm {
+
+    /** @return The number of stages a blur is split into. */
+    int getStageCount();
+
+    /**
+     * Performs one stage of the blur. Stages are performed in order. Only stage 0 reads the input,
+     * and the renderer's input is not set again for the later stages. Frame buffers needed by later
+     * stages must be held until then. The output of the previous blur must stay valid until the last
+     * stage replaces it.
+     */
+    void blurStage(BlurPassRenderer renderer, int stage);
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Performs the blur passes for a {@link GaussianBlur}, from its initial target into an output
+ * texture that is drawn into the scene. An instance belongs to a single GaussianBlur, which
+ * disposes it.
+ */
+public interface BlurAlgorithm extends Disposable {
+
+    /** @return The largest radius, in pixels of the initial target, that can be blurred without
+     * visible clipping. */
+    int getMaxRadius();
+
+    /** Set the blur radius in pixels of the initial target. Algorithms may approximate it. */
+    void setRadius(float radius);
+
+    float getRadius();
+
+    /** @return Whether the current radius produces a noticeable blur. If false, the initial target is
+     * drawn into the scene directly. */
+    boolean shouldBlur();
+
+    /**
+     * Called whenever the initial target is recreated. The size is that of the standard
+     * orientation, and does not change when GaussianBlur swaps to its inverse target.
+     */
+    void resize(int width, int height);
+
+    /**
+     * Performs the blur passes using the renderer, reading from {@link BlurPassRenderer#getInput()}
+     * and finishing with an output pass into the frame buffer that holds {@link #getOutput()}.
+     * Frame buffers for the passes should be borrowed with
+     * {@link BlurPassRenderer#obtainFrameBuffer(int, int)} and freed as soon as they have been
+     * read. The output frame buffer is kept until the next blur or
+     * {@link #freeFrameBuffers(BlurPassRenderer)}.
+     */
+    void blur(BlurPassRenderer renderer);
+
+    /** @return The texture written by the output pass of the most recent {@link #blur(BlurPassRenderer)},
+     * or null if its frame buffer has been freed. */
+    Texture getOutput();
+
+    /** Frees any frame buffers the algorithm is holding. Called when the size or pool changes, and
+     * before the algorithm is disposed. */
+    void freeFrameBuffers(BlurPassRenderer renderer);
+}
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Draws full screen passes for a {@link BlurAlgorithm}. It keeps track of the orientation of each
+ * pass so the algorithm doesn't have to. Frame buffer textures are upside down relative to
+ * SpriteBatch's texture coordinates, so each pass flips the image, and the first pass from an
+ * inverse initial target also rotates it. The output pass draws whichever way leaves the result
+ * upright for {@link GaussianBlur#render()}.
+ * <p>
+ * Each pass must read either the input, the destination of the previous pass, or the destination
+ * of an earlier output pass. Output passes leave their destination upright, so an algorithm can
+ * produce several upright results, such as the levels of a mip chain.
+ * <p>
+ * If GaussianBlur has a blur region, passes that are given a margin are scissored to the region,
+ * expanded by the margin. The margin must cover the reach of all the remaining passes.
+ * <p>
+ * When GaussianBlur fuses the output pass with drawing into the scene, the output pass draws
+ * straight into the scene, and {@link #obtainOutputFrameBuffer(int, int)} returns null.
+ */
+public class BlurPassRenderer {
+
+    private final SpriteBatch spriteBatch;
+    private FrameBufferPool frameBufferPool;
+    private FrameBufferFormat format;
+    private int bytesTransferred;
+    private final Matrix4 projectionMatrix;
+    private final Matrix4 rotatingProjectionMatrix;
+
+    private Texture input;
+    private boolean inputRotated;
+    private Rectangle region; //in the orientation of the output
+    private Texture previousDestinationTexture;
+    private boolean previousDestinationFlipped;
+    private final Array<Texture> outputTextures = new Array<Texture>(); //upright destinations
+
+    private FrameBuffer destination;
+    private Texture source;
+    private boolean flip;
+    private boolean sourceFlipped;
+    private boolean outputPass;
+    private boolean destinationFlipped;
+    private boolean scissoring;
+
+    private boolean outputToScene;
+    private Matrix4 sceneProjectionMatrix;
+    private float sceneX, sceneY, sceneWidth, sceneHeight;
+    private boolean sceneBlending;
+    private int sceneBlendSrcFunc, sceneBlendDstFunc;
+    private boolean sceneDepthTest;
+    private GaussianBlur.CustomShaderPreparer scenePreparer;
+    private boolean scenePreparerFlipped;
+    private final Rectangle flippedRegion = new Rectangle();
+
+    BlurPassRenderer(SpriteBatch spriteBatch, FrameBufferPool frameBufferPool, FrameBufferFormat format){
+        this.spriteBatch = spriteBatch;
+        this.frameBufferPool = frameBufferPool;
+        this.format = format;
+        OrthographicCamera tempCam = new OrthographicCamera(2,2);
+        tempCam.position.set(0,0,0.5f); //depth doesn't matter since depth testing is disabled for passes
+        tempCam.near = 0;
+        tempCam.far = 1;
+        tempCam.update();
+        projectionMatrix = new Matrix4(tempCam.combined);
+        tempCam.up.set(1,0,0);
+        tempCam.update();
+        rotatingProjectionMatrix = new Matrix4(tempCam.combined);
+    }
+
+    /**
+     * @param region The normalized region of the output that needs to be blurred, or null for all
+     *               of it.
+     */
+    void setInput(Texture input, boolean rotated, Rectangle region){
+        this.input = input;
+        this.inputRotated = rotated;
+        this.region = region;
+        previousDestinationTexture = null;
+        outputTextures.clear();
+        bytesTransferred = 0;
+    }
+
+    void setFrameBufferPool(FrameBufferPool frameBufferPool){
+        this.frameBufferPool = frameBufferPool;
+    }
+
+    void setFormat(FrameBufferFormat format){
+        this.format = format;
+    }
+
+    /** @return The estimated bytes written and read by the passes since the input was set. */
+    int getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Borrows a frame buffer from the GaussianBlur's pool. It may be shared with other GaussianBlurs,
+     * so its contents are only valid until it is freed.
+     */
+    public FrameBuffer obtainFrameBuffer(int width, int height){
+        return frameBufferPool.obtain(format, width, height, false);
+    }
+
+    /** Returns a frame buffer from {@link #obtainFrameBuffer(int, int)}. Null is ignored. */
+    public void freeFrameBuffer(FrameBuffer frameBuffer){
+        if (frameBuffer != null)
+            frameBufferPool.free(frameBuffer);
+    }
+
+    /**
+     * Makes the output pass draw into the scene like {@link GaussianBlur#render()} would draw the
+     * output, with the given projection and full size draw parameters for an upright texture. The
+     * preparer, if not null, is applied with the given flipped flag once the batch has begun.
+     */
+    void setOutputToScene(Matrix4 projectionMatrix, float x, float y, float width, float height,
+                          boolean blending, int blendSrcFunc, int blendDstFunc, boolean depthTest,
+                          GaussianBlur.CustomShaderPreparer preparer, boolean preparerFlipped){
+        outputToScene = true;
+        sceneProjectionMatrix = projectionMatrix;
+        sceneX = x;
+        sceneY = y;
+        sceneWidth = width;
+        sceneHeight = height;
+        sceneBlending = blending;
+        sceneBlendSrcFunc = blendSrcFunc;
+        sceneBlendDstFunc = blendDstFunc;
+        sceneDepthTest = depthTest;
+        scenePreparer = preparer;
+        scenePreparerFlipped = preparerFlipped;
+    }
+
+    void clearOutputToScene(){
+        outputToScene = false;
+        sceneProjectionMatrix = null;
+        scenePreparer = null;
+    }
+
+    /** @return Whether the output pass draws into the scene rather than a frame buffer. */
+    public boolean isOutputToScene() {
+        return outputToScene;
+    }
+
+    /**
+     * Borrows a frame buffer for the output pass, like {@link #obtainFrameBuffer(int, int)}.
+     * @return The frame buffer, or null if the output pass draws into the scene. Null can be passed
+     * to {@link #beginOutputPass(FrameBuffer, Texture, ShaderProgram)} and freed.
+     */
+    public FrameBuffer obtainOutputFrameBuffer(int width, int height){
+        return outputToScene ? null : obtainFrameBuffer(width, height);
+    }
+
+    /** @return The initial target texture that the first pass reads. */
+    public Texture getInput() {
+        return input;
+    }
+
+    /**
+     * @return Whether drawing the input rotates it a quarter turn. If so, the input's x axis is the
+     * vertical axis of the output and vice versa.
+     */
+    public boolean isInputRotated() {
+        return inputRotated;
+    }
+
+    /**
+     * Binds the destination and prepares to draw the source into it with the given shader. Uniforms
+     * can be set on the shader after this is called. Must be followed by {@link #endPass()}. The
+     * whole destination is drawn.
+     * @param shader The shader to draw with, or null for SpriteBatch's default shader.
+     */
+    public void beginPass(FrameBuffer destination, Texture source, ShaderProgram shader){
+        begin(destination, source, shader, false, -1);
+    }
+
+    /**
+     * Like {@link #beginPass(FrameBuffer, Texture, ShaderProgram)}, but only draws the blur region
+     * if there is one.
+     * @param margin How far to expand the blur region, in pixels of the destination.
+     */
+    public void beginPass(FrameBuffer destination, Texture source, ShaderProgram shader, int margin){
+        begin(destination, source, shader, false, margin);
+    }
+
+    /**
+     * Like {@link #beginPass(FrameBuffer, Texture, ShaderProgram)}, for the last pass of the blur.
+     * The destination is left upright to hold the algorithm's output, and later passes may still
+     * read it. It cannot read the input directly.
+     */
+    public void beginOutputPass(FrameBuffer destination, Texture source, ShaderProgram shader){
+        begin(destination, source, shader, true, -1);
+    }
+
+    /**
+     * Like {@link #beginPass(FrameBuffer, Texture, ShaderProgram, int)}, for the last pass of the
+     * blur. The margin should be at least one pixel so linear filtering of the output doesn't pick
+     * up stale pixels at the region's edge.
+     */
+    public void beginOutputPass(FrameBuffer destination, Texture source, ShaderProgram shader, int margin){
+        begin(destination, source, shader, true, margin);
+    }
+
+    private void begin(FrameBuffer destination, Texture source, ShaderProgram shader, boolean output, int margin){
+        if (source == input){
+            if (output)
+                throw new GdxRuntimeException("The output pass cannot read the input.");
+            flip = true;
+            sourceFlipped = false;
+            destinationFlipped = true; //flipped or rotated, both are corrected by a second flip
+            spriteBatch.setProjectionMatrix(inputRotated ? rotatingProjectionMatrix : projectionMatrix);
+        } else {
+            if (source == previousDestinationTexture)
+                sourceFlipped = previousDestinationFlipped;
+            else if (outputTextures.contains(source, true))
+                sourceFlipped = false;
+            else
+                throw new GdxRuntimeException("A blur pass must read the input, the previous pass's destination, or an output.");
+            flip = !output || sourceFlipped;
+            destinationFlipped = sourceFlipped != flip;
+            spriteBatch.setProjectionMatrix(projectionMatrix);
+        }
+        this.destination = destination;
+        this.source = source;
+        this.outputPass = output;
+
+        if (destination == null){
+            if (!output || !outputToScene)
+                throw new GdxRuntimeException("Only the output pass can draw into the scene.");
+            spriteBatch.setProjectionMatrix(sceneProjectionMatrix);
+            if (sceneBlending){
+                spriteBatch.setBlendFunction(sceneBlendSrcFunc, sceneBlendDstFunc);
+                spriteBatch.enableBlending();
+            }
+            if (sceneDepthTest)
+                Gdx.gl20.glEnable(GL20.GL_DEPTH_TEST);
+            scissoring = false;
+        } else {
+            destination.begin();
+            scissoring = region != null && margin >= 0;
+            if (scissoring)
+                scissorToRegion(destination, margin);
+            Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        }
+        spriteBatch.setShader(shader);
+        spriteBatch.begin();
+        if (destination == null && scenePreparer != null)
+            scenePreparer.applyCustomShaderParameters(spriteBatch, scenePreparerFlipped);
+    }
+
+    /** Draws the pass that was begun. */
+    public void endPass(){
+        if (destination == null){
+            endScenePass();
+            return;
+        }
+        if (flip)
+            spriteBatch.draw(source, -1, -1, 2, 2);
+        else
+            spriteBatch.draw(source, -1, 1, 2, -2);
+        spriteBatch.end();
+        spriteBatch.setShader(null);
+        bytesTransferred += (source.getWidth() * source.getHeight() +
+                destination.getWidth() * destination.getHeight()) * format.resolve().getBytesPerPixel();
+        if (scissoring)
+            Gdx.gl20.glDisable(GL20.GL_SCISSOR_TEST);
+        destination.end();
+
+        previousDestinationTexture = destination.getColorBufferTexture();
+        previousDestinationFlipped = destinationFlipped;
+        if (outputPass)
+            outputTextures.add(previousDestinationTexture);
+        destination = null;
+        source = null;
+    }
+
+    private void endScenePass(){
+        //A flipped source is drawn upside down to end up upright.
+        if (sourceFlipped){
+            Rectangle sourceRegion = null;
+            if (region != null)
+                sourceRegion = flippedRegion.set(region.x, 1f - region.y - region.height, region.width, region.height);
+            draw(spriteBatch, source, sceneX, sceneY + sceneHeight, sceneWidth, -sceneHeight, sourceRegion);
+        } else {
+            draw(spriteBatch, source, sceneX, sceneY, sceneWidth, sceneHeight, region);
+        }
+        spriteBatch.end();
+        spriteBatch.setShader(null);
+        spriteBatch.disableBlending();
+        if (sceneDepthTest)
+            Gdx.gl20.glDisable(GL20.GL_DEPTH_TEST);
+        bytesTransferred += source.getWidth() * source.getHeight() * format.resolve().getBytesPerPixel();
+
+        previousDestinationTexture = null;
+        source = null;
+    }
+
+    /**
+     * Draws the texture as it would be drawn in full by {@code spriteBatch.draw(texture, x, y, width, height)},
+     * but only the given normalized region of it.
+     * @param region The region, or null to draw all of it.
+     */
+    static void draw(SpriteBatch spriteBatch, Texture texture, float x, float y, float width, float height, Rectangle region){
+        if (region == null){
+            spriteBatch.draw(texture, x, y, width, height);
+            return;
+        }
+        float top = region.y + region.height;
+        spriteBatch.draw(texture, x + width * region.x, y + height * (1f - top),
+                width * region.width, height * region.height,
+                region.x, top, region.x + region.width, region.y);
+    }
+
+    private void scissorToRegion(FrameBuffer destination, int margin){
+        int width = destination.getWidth();
+        int height = destination.getHeight();
+        float regionY = destinationFlipped ? 1f - region.y - region.height : region.y;
+        int x0 = Math.max(0, (int)(region.x * width) - margin);
+        int y0 = Math.max(0, (int)(regionY * height) - margin);
+        int x1 = Math.min(width, (int)Math.ceil((region.x + region.width) * width) + margin);
+        int y1 = Math.min(height, (int)Math.ceil((regionY + region.height) * height) + margin);
+        GL20 gl = Gdx.gl20;
+        gl.glEnable(GL20.GL_SCISSOR_TEST);
+        gl.glScissor(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+    }
+}
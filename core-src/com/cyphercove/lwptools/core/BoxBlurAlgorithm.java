@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Iterated separable box blur. Repeating a box blur approaches a Gaussian blur, and three
+ * iterations are usually indistinguishable from one. Each pass has uniform weights, so the radius
+ * is adjusted by scaling the spacing of the taps.
+ */
+public class BoxBlurAlgorithm implements BlurAlgorithm {
+
+    public static final int MAX_PAIRS = 4;
+
+    private final int pairs;
+    private final int iterations;
+    private final float weightAtCenter;
+    private final float pairWeight;
+    private final float unitVariance; //variance of one pass at full spacing
+    private float spacing;
+    private float radius = -1;
+
+    private final GaussianBlurShaderProvider shaderProvider;
+    private final ShaderProgram boxPassShaderProgram;
+    private FrameBuffer fboOutput;
+    private int width;
+    private int height;
+
+    /**
+     * @param pairs The number of linearly sampled tap pairs on each side of the center, from 1 to
+     *              {@link #MAX_PAIRS}. At full spacing, each pass covers {@code 2 * pairs} pixels
+     *              on each side.
+     * @param iterations The number of times the horizontal and vertical passes are repeated.
+     */
+    public BoxBlurAlgorithm(int pairs, int iterations, float initialRadius, GaussianBlurShaderProvider shaderProvider){
+        if (pairs < 1 || pairs > MAX_PAIRS){
+            throw new GdxRuntimeException(
+                    "Pairs must be between 1 and " + MAX_PAIRS + " inclusive.");
+        }
+        if (iterations < 1){
+            throw new GdxRuntimeException("Iterations must be at least 1.");
+        }
+        this.pairs = pairs;
+        this.iterations = iterations;
+
+        int taps = 4 * pairs + 1;
+        weightAtCenter = 1f / taps;
+        pairWeight = 2f / taps;
+        float variance = 0;
+        for (int i = 1; i <= pairs; i++){
+            float offset = i * 2f - 0.5f;
+            variance += 2 * pairWeight * offset * offset;
+        }
+        unitVariance = variance;
+
+        this.shaderProvider = shaderProvider;
+        boxPassShaderProgram = shaderProvider.obtainBoxPassShaderProgram(pairs);
+        setRadius(initialRadius);
+    }
+
+    @Override
+    public void dispose() {
+        shaderProvider.disposeShader(boxPassShaderProgram);
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void freeFrameBuffers(BlurPassRenderer renderer) {
+        renderer.freeFrameBuffer(fboOutput);
+        fboOutput = null;
+    }
+
+    @Override
+    public int getMaxRadius() {
+        return (int)(3f * (float)Math.sqrt(iterations * unitVariance));
+    }
+
+    /** Set the blur radius. Beyond the max radius, gaps between the taps will be visible. */
+    @Override
+    public void setRadius(float radius) {
+        if (this.radius == radius)
+            return;
+        this.radius = radius;
+        spacing = (float)Math.sqrt(radius * radius / 9f / (iterations * unitVariance));
+    }
+
+    @Override
+    public float getRadius() {
+        return radius;
+    }
+
+    @Override
+    public boolean shouldBlur() {
+        return radius > 3f * GaussianBlur.MIN_SIGMA;
+    }
+
+    @Override
+    public void blur(BlurPassRenderer renderer) {
+        freeFrameBuffers(renderer);
+        FrameBuffer fboPing = renderer.obtainFrameBuffer(width, height);
+        FrameBuffer fboPong = null;
+        Texture source = renderer.getInput();
+        boolean rotated = renderer.isInputRotated();
+        int margin = (int)Math.ceil(iterations * (spacing * 2 * pairs + 1)); //reach of all passes
+        for (int i = 0; i < iterations; i++){
+            //If the input is rotated, the first pass blurs along the output's y, so the second pass
+            //of each iteration must blur along x. Later iterations are not rotated.
+            renderer.beginPass(fboPing, source, boxPassShaderProgram, margin);
+            applyUniforms(source, true);
+            renderer.endPass();
+
+            source = fboPing.getColorBufferTexture();
+            if (i == iterations - 1){
+                renderer.freeFrameBuffer(fboPong);
+                fboPong = renderer.obtainOutputFrameBuffer(width, height);
+                renderer.beginOutputPass(fboPong, source, boxPassShaderProgram, 1);
+            } else {
+                if (fboPong == null)
+                    fboPong = renderer.obtainFrameBuffer(width, height);
+                renderer.beginPass(fboPong, source, boxPassShaderProgram, margin);
+            }
+            applyUniforms(source, i == 0 && rotated);
+            renderer.endPass();
+            if (fboPong != null)
+                source = fboPong.getColorBufferTexture();
+        }
+        renderer.freeFrameBuffer(fboPing);
+        fboOutput = fboPong;
+    }
+
+    private void applyUniforms(Texture source, boolean alongX){
+        if (alongX)
+            boxPassShaderProgram.setUniformf("u_size", spacing / source.getWidth(), 0);
+        else
+            boxPassShaderProgram.setUniformf("u_size", 0, spacing / source.getHeight());
+        boxPassShaderProgram.setUniformf("u_weightAtCenter", weightAtCenter);
+        boxPassShaderProgram.setUniformf("u_pairWeight", pairWeight);
+    }
+
+    @Override
+    public Texture getOutput() {
+        return fboOutput == null ? null : fboOutput.getColorBufferTexture();
+    }
+}
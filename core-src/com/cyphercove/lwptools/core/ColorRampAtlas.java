@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A texture of precomputed color ramps, one per row, so shaders can look up a color from a
+ * position such as the battery level without any per frame work on the CPU. Ramps are arrays of
+ * Android Color ints, and can also be sampled on the CPU with {@link #sample(int[], float)}.
+ * <p>
+ * In a shader, sample a ramp at {@code vec2(position * uScale + uOffset, v)}, with the values from
+ * {@link #getUScale()}, {@link #getUOffset()}, and {@link #getV(int)}. This hits the centers of the
+ * first and last texels at positions 0 and 1. The texture is managed, so it survives context loss.
+ */
+public class ColorRampAtlas implements Disposable {
+
+    public static final int DEFAULT_RAMP_WIDTH = 256;
+
+    private final int rampWidth;
+    private final int maxRamps;
+    private final Pixmap pixmap;
+    private Texture texture;
+    private int rampCount;
+    private boolean dirty;
+
+    public ColorRampAtlas(int maxRamps){
+        this(DEFAULT_RAMP_WIDTH, maxRamps);
+    }
+
+    public ColorRampAtlas(int rampWidth, int maxRamps){
+        if (rampWidth < 2)
+            throw new GdxRuntimeException("Ramp width must be at least 2.");
+        if (maxRamps < 1)
+            throw new GdxRuntimeException("There must be room for at least one ramp.");
+        this.rampWidth = rampWidth;
+        this.maxRamps = maxRamps;
+        pixmap = new Pixmap(rampWidth, maxRamps, Pixmap.Format.RGBA8888);
+    }
+
+    /**
+     * Adds a ramp in the next free row.
+     * @param argb Android Color ints, with the same length as the ramp width.
+     * @return The row of the ramp.
+     */
+    public int addRamp(int[] argb){
+        if (rampCount == maxRamps)
+            throw new GdxRuntimeException("The atlas is full.");
+        setRamp(rampCount, argb);
+        return rampCount++;
+    }
+
+    /** Replaces the ramp in a row. The texture is updated the next time it's retrieved. */
+    public void setRamp(int row, int[] argb){
+        if (row < 0 || row >= maxRamps)
+            throw new GdxRuntimeException("Row must be between 0 and " + (maxRamps - 1) + " inclusive.");
+        if (argb.length != rampWidth)
+            throw new GdxRuntimeException("Ramp length must match the ramp width, " + rampWidth + ".");
+        //Written directly rather than with drawPixel, so translucent colors aren't blended.
+        ByteBuffer pixels = pixmap.getPixels();
+        int i = row * rampWidth * 4;
+        for (int color : argb){
+            pixels.put(i++, (byte)(color >> 16));
+            pixels.put(i++, (byte)(color >> 8));
+            pixels.put(i++, (byte)color);
+            pixels.put(i++, (byte)(color >>> 24));
+        }
+        dirty = true;
+    }
+
+    /** Removes all ramps, so rows are filled again from the first. The old contents stay in the
+     * texture until they're overwritten. */
+    public void clear(){
+        rampCount = 0;
+    }
+
+    public int getRampCount() {
+        return rampCount;
+    }
+
+    public int getRampWidth() {
+        return rampWidth;
+    }
+
+    public int getMaxRamps() {
+        return maxRamps;
+    }
+
+    /** @return The texture, after uploading any ramps that changed. Must be called on the GL thread. */
+    public Texture getTexture(){
+        if (texture == null){
+            texture = new Texture(new PixmapTextureData(pixmap, null, false, false, true));
+            texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            texture.setWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge);
+        } else if (dirty){
+            texture.draw(pixmap, 0, 0);
+        }
+        dirty = false;
+        return texture;
+    }
+
+    public float getUScale(){
+        return (rampWidth - 1f) / rampWidth;
+    }
+
+    public float getUOffset(){
+        return 0.5f / rampWidth;
+    }
+
+    /** @return The texture coordinate of the center of a row. */
+    public float getV(int row){
+        return (row + 0.5f) / maxRamps;
+    }
+
+    /**
+     * @return The color of the ramp nearest to the position, where 0 is the first color and 1 is
+     * the last. Positions outside that range are clamped.
+     */
+    public static int sample(int[] ramp, float position){
+        int last = ramp.length - 1;
+        int i = (int)(position * last + 0.5f);
+        return ramp[i < 0 ? 0 : (i > last ? last : i)];
+    }
+
+    @Override
+    public void dispose() {
+        if (texture != null)
+            texture.dispose();
+        pixmap.dispose();
+    }
+}
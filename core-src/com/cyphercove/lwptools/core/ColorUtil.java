@@ -19,9 +19,25 @@ package com.cyphercove.lwptools.core;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.MathUtils;
 
+/** Color helpers. Methods that return a temp Color share a single static instance, so they must only
+ * be used from one thread. Each has an overload that takes a destination Color instead, and the rest
+ * use thread-local scratch space, so those can be used from any thread.*/
 public final class ColorUtil {
 	private static final float inv255=1/255f;
+	/** Shared result of the methods that return a temp Color. Not thread safe.*/
 	public static Color temp = new Color();
+	private static final ThreadLocal<float[]> hsvScratch = new ThreadLocal<float[]>(){
+		@Override
+		protected float[] initialValue() {
+			return new float[3];
+		}
+	};
+	private static final ThreadLocal<float[]> rgbScratch = new ThreadLocal<float[]>(){
+		@Override
+		protected float[] initialValue() {
+			return new float[3];
+		}
+	};
 	
 	public static Color invert(Color color){
 		color.set(1-color.r,1-color.g,1-color.b,1-color.a);
@@ -36,57 +52,86 @@ public final class ColorUtil {
 		return color;
 	}
 
-	/** Amount is how far to shift hue (normalized across colors from 0 to 1). Returns the modified input color.*/
+	/** Returns the modified input color. Uses thread-local scratch space, so it doesn't allocate.
+	 * @see #shiftHue(Color, float, float[]) */
 	public static Color shiftHue(Color color,float amount){
-		float[] hsv = new float[3];
-		androidIntToHSV(toAndroidInt(color),hsv);
+		return shiftHue(color, amount, hsvScratch.get());
+	}
+
+	/** Amount is how far to shift hue (normalized across colors from 0 to 1). Returns the modified input color.
+	 * @param hsv Scratch space of at least 3 elements.*/
+	public static Color shiftHue(Color color,float amount, float[] hsv){
+		toHSV(color,hsv);
 		hsv[0] += amount*360;
 		while (hsv[0]<0)
 			hsv[0] += 360;
 		while (hsv[0]>=360)
 			hsv[0] -= 360;
-		return color.set(fromAndroidInt(hsvToAndroidInt(hsv)));
+		return setHSV(color, hsv);
 	}
-	
+
 	/** Returns the modified input color.*/
 	public static Color scaleSaturation(Color color,float scale){
-		float[] hsv = new float[3];
-		androidIntToHSV(toAndroidInt(color),hsv);
+		return scaleSaturation(color, scale, hsvScratch.get());
+	}
+
+	/** Returns the modified input color.
+	 * @param hsv Scratch space of at least 3 elements.*/
+	public static Color scaleSaturation(Color color,float scale, float[] hsv){
+		toHSV(color,hsv);
 		hsv[1] *= scale;
 		hsv[1] = Math.min(hsv[1], 1);
-		//Unnecessary. hsv[1] = MathUtils.clamp(hsv[1], 0, 1f);
-		return color.set(fromAndroidInt(hsvToAndroidInt(hsv)));
+		return setHSV(color, hsv);
 	}
-	
+
 	/** Returns the modified input color.*/
 	public static Color maximizeSaturation(Color color){
-		float[] hsv = new float[3];
-		androidIntToHSV(toAndroidInt(color),hsv);
+		return maximizeSaturation(color, hsvScratch.get());
+	}
+
+	/** Returns the modified input color.
+	 * @param hsv Scratch space of at least 3 elements.*/
+	public static Color maximizeSaturation(Color color, float[] hsv){
+		toHSV(color,hsv);
 		hsv[1] = 1f;
-		return color.set(fromAndroidInt(hsvToAndroidInt(hsv)));
+		return setHSV(color, hsv);
 	}
-	
+
 	/** Returns the modified input color.*/
 	public static Color maximizeBrightness(Color color){
-		float[] hsv = new float[3];
-		androidIntToHSV(toAndroidInt(color),hsv);
+		return maximizeBrightness(color, hsvScratch.get());
+	}
+
+	/** Returns the modified input color.
+	 * @param hsv Scratch space of at least 3 elements.*/
+	public static Color maximizeBrightness(Color color, float[] hsv){
+		toHSV(color,hsv);
 		hsv[2] = 1f;
-		return color.set(fromAndroidInt(hsvToAndroidInt(hsv)));
+		return setHSV(color, hsv);
 	}
-	
+
 	/** Returns the modified input color.*/
 	public static Color scaleValue(Color color,float scale){
-		float[] hsv = new float[3];
-		androidIntToHSV(toAndroidInt(color),hsv);
+		return scaleValue(color, scale, hsvScratch.get());
+	}
+
+	/** Returns the modified input color.
+	 * @param hsv Scratch space of at least 3 elements.*/
+	public static Color scaleValue(Color color,float scale, float[] hsv){
+		toHSV(color,hsv);
 		hsv[2] *= scale;
 		hsv[2] = MathUtils.clamp(hsv[2], 0, 1f); //necessary to prevent hue shifts
-		return color.set(fromAndroidInt(hsvToAndroidInt(hsv)));
+		return setHSV(color, hsv);
 	}
-	
+
 	/** Returns a temporary GDX color from given Android Color int.*/
 	public static Color fromAndroidInt(int color){
-		temp.set(red(color)*inv255,green(color)*inv255,blue(color)*inv255,alpha(color)*inv255);
-		return temp;
+		return fromAndroidInt(color, temp);
+	}
+
+	/** Sets the destination Color from the given Android Color int and returns it.*/
+	public static Color fromAndroidInt(int color, Color dst){
+		return dst.set(red(color)*inv255,green(color)*inv255,blue(color)*inv255,alpha(color)*inv255);
 	}
 	
 	public static int toAndroidInt(Color color){
@@ -100,43 +145,60 @@ public final class ColorUtil {
 	/** Return a temp Color defined by the given hex value.
 	 * @param hex Must be of the form 0xAARRGGBB.*/
 	public static Color fromHex(long hex)
+	{
+		return fromHex(hex, temp);
+	}
+
+	/** Sets the destination Color from the given hex value and returns it.
+	 * @param hex Must be of the form 0xAARRGGBB.*/
+	public static Color fromHex(long hex, Color dst)
 	{
 		float a = (hex & 0xFF000000L) >> 24;
 		float r = (hex & 0xFF0000L) >> 16;
 		float g = (hex & 0xFF00L) >> 8;
 		float b = (hex & 0xFFL);
-		temp.set(r*inv255, g*inv255, b*inv255, a*inv255);
-		return temp;
+		return dst.set(r*inv255, g*inv255, b*inv255, a*inv255);
 	}
 
 	/** Return a temp Color defined by the given hex value.
 	 * @param s Must be of the form AARRGGBB or RRGGBB.*/
 	public static Color fromHexString(String s)
 	{               
-		if(s.startsWith("0x"))
-			s = s.substring(2);
-		if (s.length()==6)
-			s="FF"+s;
-		if(s.length() != 8) // AARRGGBB
-			throw new IllegalArgumentException("String must have the form AARRGGBB or RRGGBB.");
-		return fromHex(Long.parseLong(s, 16));
+		return fromHexString(s, temp);
+	}
+
+	/** Sets the destination Color from the given hex string and returns it.
+	 * @param s Must be of the form AARRGGBB or RRGGBB.*/
+	public static Color fromHexString(String s, Color dst)
+	{
+		return fromHexString(s, 0, s.length(), dst);
+	}
+
+	/** Sets the destination Color from the hex characters between start inclusive and end exclusive, and
+	 * returns it. Doesn't allocate.
+	 * @param s Must be of the form AARRGGBB or RRGGBB, optionally preceded by 0x.*/
+	public static Color fromHexString(CharSequence s, int start, int end, Color dst)
+	{
+		return fromAndroidInt(IntColor.parseHex(s, start, end), dst);
 	}
 
 	/**Returns a fully saturated version of the Android Color int as a temp Color.*/
 	public static Color fromAndroidIntToSaturated(int color){
-		float[] hsv = {0f,0f,0f};
+		return fromAndroidIntToSaturated(color, temp);
+	}
+
+	/**Sets the destination Color to a fully saturated version of the Android Color int and returns it.*/
+	public static Color fromAndroidIntToSaturated(int color, Color dst){
+		float[] hsv = hsvScratch.get();
 		IntColor.colorToHSV(color, hsv);
 		hsv[2]=1f;//as bright as possible, same hue
-		int i = IntColor.HSVToColor(hsv);
-		temp.set(red(i)*inv255,green(i)*inv255,blue(i)*inv255,alpha(i)*inv255);
-		return temp;
+		return fromAndroidInt(IntColor.HSVToColor(hsv), dst);
 	}
 
-	static float invInterp;
 	/**Sets the destination Color to an interpolation between the two source Colors.
 	 * @param interp Value between 0 and 1 corresponding to distance between src1 and src2.*/
 	public static Color setInterpolatedColor(Color dst, Color src1, Color src2, float interp){
-		invInterp=1-interp;
+		float invInterp=1-interp;
 		dst.set(src1.r*interp+src2.r*invInterp,
 				src1.g*interp+src2.g*invInterp,
 				src1.b*interp+src2.b*invInterp,
@@ -186,15 +248,199 @@ public final class ColorUtil {
 	}
 	
 	public static Color fromHSV(float[] hsv){
-		return fromAndroidInt(hsvToAndroidInt(hsv));
+		return fromHSV(hsv, temp);
+	}
+
+	/** Sets the destination Color from HSV components with full alpha and returns it.*/
+	public static Color fromHSV(float[] hsv, Color dst){
+		return fromAndroidInt(hsvToAndroidInt(hsv), dst);
 	}
 
 	public static void androidIntToHSV(int color, float[] hsv) {
 		IntColor.colorToHSV(color, hsv);
 	}
 	
+	/** Converts the color to HSV at full float precision. Hue is from 0 to 360, and saturation and value
+	 * are from 0 to 1. Alpha is ignored.*/
 	public static void toHSV(Color color, float[] hsv) {
-		IntColor.colorToHSV(toAndroidInt(color), hsv);
+		toHSV(color.r, color.g, color.b, hsv);
+	}
+
+	/** Converts RGB components from 0 to 1 to HSV at full float precision.
+	 * @see #toHSV(Color, float[])*/
+	public static void toHSV(float r, float g, float b, float[] hsv) {
+		toHSV(r, g, b, hsv, 0);
+	}
+
+	private static void toHSV(float r, float g, float b, float[] hsv, int offset) {
+		float max = Math.max(b, Math.max(r, g));
+		float min = Math.min(b, Math.min(r, g));
+		float h, s;
+		if (max == min){
+			h = 0;
+			s = 0;
+		} else {
+			float c = max - min;
+			s = c / max;
+			if (r == max)
+				h = ((g-b)/c)%6;
+			else if (g == max)
+				h = 2 + (b-r)/c;
+			else
+				h = 4 + (r-g)/c;
+			h *= 60;
+			if (h < 0)
+				h += 360;
+			if (h >= 360) //a tiny negative hue rounds to 360, when blue is barely above green
+				h -= 360;
+		}
+		hsv[offset] = h;
+		hsv[offset + 1] = s;
+		hsv[offset + 2] = max;
+	}
+
+	/** Sets the RGB of the color from HSV components at full float precision, leaving alpha unchanged.
+	 * Returns the modified input color.
+	 * @see #toHSV(Color, float[])*/
+	public static Color setHSV(Color color, float[] hsv) {
+		float[] rgb = rgbScratch.get();
+		hsvToRGB(hsv[0], hsv[1], hsv[2], rgb, 0);
+		color.r = rgb[0];
+		color.g = rgb[1];
+		color.b = rgb[2];
+		return color;
+	}
+
+	/** Converts HSV components to RGB components from 0 to 1 at full float precision, writing them to the
+	 * array at the offset.
+	 * @see #toHSV(Color, float[])*/
+	public static void hsvToRGB(float h, float s, float v, float[] rgb, int offset) {
+		float c = s * v;
+		float hPrime = h/60;
+		float x = c * (1 - Math.abs(hPrime%2 - 1));
+		float m = v - c;
+		float r, g, b;
+		if (hPrime<1){
+			r = c;
+			g = x;
+			b = 0;
+		} else if (hPrime<2){
+			r = x;
+			g = c;
+			b = 0;
+		} else if (hPrime<3){
+			r = 0;
+			g = c;
+			b = x;
+		} else if (hPrime<4){
+			r = 0;
+			g = x;
+			b = c;
+		} else if (hPrime<5){
+			r = x;
+			g = 0;
+			b = c;
+		} else if (hPrime<6){
+			r = c;
+			g = 0;
+			b = x;
+		} else { //a hue of 360 is the same as 0
+			r = c;
+			g = x;
+			b = 0;
+		}
+		rgb[offset] = r + m;
+		rgb[offset + 1] = g + m;
+		rgb[offset + 2] = b + m;
+	}
+
+	/** Converts a range of interleaved RGBA colors to HSV components, three per color.*/
+	public static void rgbaToHSV(float[] rgba, int rgbaOffset, float[] hsv, int hsvOffset, int count) {
+		for (int i = 0; i < count; i++){
+			int c = rgbaOffset + i * 4;
+			toHSV(rgba[c], rgba[c + 1], rgba[c + 2], hsv, hsvOffset + i * 3);
+		}
+	}
+
+	/** Sets the RGB of a range of interleaved RGBA colors from HSV components, three per color. Alpha is
+	 * unchanged.*/
+	public static void hsvToRGBA(float[] hsv, int hsvOffset, float[] rgba, int rgbaOffset, int count) {
+		for (int i = 0; i < count; i++){
+			int h = hsvOffset + i * 3;
+			hsvToRGB(hsv[h], hsv[h + 1], hsv[h + 2], rgba, rgbaOffset + i * 4);
+		}
+	}
+
+	/* Bulk operations work on a range of an array in place, so separate ranges of a large array can be
+	 * processed in parallel. Colors in int arrays are Android Color ints, and colors in float arrays are
+	 * interleaved RGBA. Alpha is unchanged. */
+
+	/** @param amount How far to shift hue, normalized across colors from 0 to 1.
+	 * @see #shiftHue(Color, float)*/
+	public static void shiftHue(int[] colors, int offset, int count, float amount){
+		float[] hsv = hsvScratch.get();
+		float degrees = amount*360;
+		for (int i = offset; i < offset + count; i++){
+			int color = colors[i];
+			IntColor.colorToHSV(color, hsv);
+			colors[i] = IntColor.HSVToColor(alpha(color), wrapHue(hsv[0] + degrees), hsv[1], hsv[2]);
+		}
+	}
+
+	/** @param amount How far to shift hue, normalized across colors from 0 to 1.
+	 * @see #shiftHue(Color, float)*/
+	public static void shiftHue(float[] rgba, int offset, int count, float amount){
+		float[] hsv = hsvScratch.get();
+		float degrees = amount*360;
+		for (int i = offset * 4; i < (offset + count) * 4; i += 4){
+			toHSV(rgba[i], rgba[i + 1], rgba[i + 2], hsv);
+			hsvToRGB(wrapHue(hsv[0] + degrees), hsv[1], hsv[2], rgba, i);
+		}
+	}
+
+	/** @see #scaleSaturation(Color, float)*/
+	public static void scaleSaturation(int[] colors, int offset, int count, float scale){
+		float[] hsv = hsvScratch.get();
+		for (int i = offset; i < offset + count; i++){
+			int color = colors[i];
+			IntColor.colorToHSV(color, hsv);
+			colors[i] = IntColor.HSVToColor(alpha(color), hsv[0], Math.min(hsv[1] * scale, 1), hsv[2]);
+		}
+	}
+
+	/** @see #scaleSaturation(Color, float)*/
+	public static void scaleSaturation(float[] rgba, int offset, int count, float scale){
+		float[] hsv = hsvScratch.get();
+		for (int i = offset * 4; i < (offset + count) * 4; i += 4){
+			toHSV(rgba[i], rgba[i + 1], rgba[i + 2], hsv);
+			hsvToRGB(hsv[0], Math.min(hsv[1] * scale, 1), hsv[2], rgba, i);
+		}
+	}
+
+	/** @see #scaleValue(Color, float)*/
+	public static void scaleValue(int[] colors, int offset, int count, float scale){
+		float[] hsv = hsvScratch.get();
+		for (int i = offset; i < offset + count; i++){
+			int color = colors[i];
+			IntColor.colorToHSV(color, hsv);
+			colors[i] = IntColor.HSVToColor(alpha(color), hsv[0], hsv[1], MathUtils.clamp(hsv[2] * scale, 0, 1f));
+		}
+	}
+
+	/** @see #scaleValue(Color, float)*/
+	public static void scaleValue(float[] rgba, int offset, int count, float scale){
+		float[] hsv = hsvScratch.get();
+		for (int i = offset * 4; i < (offset + count) * 4; i += 4){
+			toHSV(rgba[i], rgba[i + 1], rgba[i + 2], hsv);
+			hsvToRGB(hsv[0], hsv[1], MathUtils.clamp(hsv[2] * scale, 0, 1f), rgba, i);
+		}
+	}
+
+	private static float wrapHue(float hue){
+		hue %= 360;
+		if (hue < 0)
+			hue += 360;
+		return hue >= 360 ? 0 : hue;
 	}
 	
 	public static int blendAndroidInts(int one, int two, float blend){
@@ -205,8 +451,13 @@ public final class ColorUtil {
 		return argb(a,r,g,b);
 	}
 	
-	static float[] hsvTemp = new float[3];
+	/** Uses thread-local scratch space, so it can be used from any thread.*/
 	public static int blendAndroidIntsPreservingLerpedSaturation(int one, int two, float blend){
+		return blendAndroidIntsPreservingLerpedSaturation(one, two, blend, hsvScratch.get());
+	}
+
+	/** @param hsvTemp Scratch space of at least 3 elements.*/
+	public static int blendAndroidIntsPreservingLerpedSaturation(int one, int two, float blend, float[] hsvTemp){
 		int a = (int)(alpha(one)*(1-blend) + alpha(two)*blend);
 		int r = (int)(red(one)*(1-blend) + red(two)*blend);
 		int g = (int)(green(one)*(1-blend) + green(two)*blend);
@@ -222,16 +473,41 @@ public final class ColorUtil {
 		return hsvToAndroidInt(hsvTemp);
 	}
 	
+	/** Fills a range with a gradient of blends from the first color toward the second, the same as calling
+	 * {@link #blendAndroidIntsPreservingLerpedSaturation(int, int, float)} with a blend of index / count for
+	 * each index in the range. The saturation of the two end colors is only calculated once.*/
+	public static void blendAndroidIntsPreservingLerpedSaturation(int one, int two, int[] colors, int offset, int count){
+		float[] hsvTemp = hsvScratch.get();
+		androidIntToHSV(one, hsvTemp);
+		float saturationOne = hsvTemp[1];
+		androidIntToHSV(two, hsvTemp);
+		float saturationTwo = hsvTemp[1];
+		for (int i = 0; i < count; i++){
+			float blend = (float)i / count;
+			int a = (int)(alpha(one)*(1-blend) + alpha(two)*blend);
+			int r = (int)(red(one)*(1-blend) + red(two)*blend);
+			int g = (int)(green(one)*(1-blend) + green(two)*blend);
+			int b = (int)(blue(one)*(1-blend) + blue(two)*blend);
+			androidIntToHSV(argb(a,r,g,b), hsvTemp);
+			hsvTemp[1]= (1-blend)*saturationOne + blend*saturationTwo;
+			colors[offset + i] = hsvToAndroidInt(hsvTemp);
+		}
+	}
+
 	public static Color blend(Color one, Color two, float blend){
+		return blend(one, two, blend, temp);
+	}
+
+	/** Sets the destination Color to a blend of the two Colors and returns it. The destination may be
+	 * one of the inputs.*/
+	public static Color blend(Color one, Color two, float blend, Color dst){
 		float inv = 1-blend;
-		temp.set(
+		return dst.set(
 				inv*one.r + blend*two.r,
 				inv*one.g + blend*two.g,
 				inv*one.b + blend*two.b,
 				inv*one.a + blend*two.a
-		); 
-		
-		return temp;
+		);
 	}
 	
 	public static Color blendIntoFirst(Color one, Color two, float blend){
@@ -247,29 +523,31 @@ public final class ColorUtil {
 	}
 	
 	public static Color blendPreservingAveragedSaturation(Color one, Color two, float blend){
-		temp.set(
-				(1-blend)*one.r + blend*two.r,
-				(1-blend)*one.g + blend*two.g,
-				(1-blend)*one.b + blend*two.b,
-				(1-blend)*one.a + blend*two.a
-		); 
-		
+		return blendPreservingAveragedSaturation(one, two, blend, temp);
+	}
+
+	/** Sets the destination Color to a blend of the two Colors that keeps some of their saturation, and
+	 * returns it. The destination must not be one of the inputs.*/
+	public static Color blendPreservingAveragedSaturation(Color one, Color two, float blend, Color dst){
+		blend(one, two, blend, dst);
+		float[] hsvTemp = hsvScratch.get();
+
 		//preserve saturation in blend
 		toHSV(one, hsvTemp);
 		float saturationOne = hsvTemp[1];
 		
 		 //If one color has zero saturation, then user probably doesn't want to preserve the average (and it would skew red if the blend is fully biased to the neutral color
 		if (saturationOne < 0.1)
-			return temp;
+			return dst;
 		
 		toHSV(two, hsvTemp);
 		float saturationTwo = hsvTemp[1];
 		
 		if (saturationTwo < 0.1)
-			return temp;
+			return dst;
 		
-		toHSV(temp, hsvTemp);
+		toHSV(dst, hsvTemp);
 		hsvTemp[1]= (hsvTemp[1] + blend*saturationOne+(1-blend)*saturationTwo) *0.5f ;
-		return fromHSV(hsvTemp);
+		return fromHSV(hsvTemp, dst);
 	}
 }
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multithreaded CPU version of the default GaussianBlur, for blurring without a GPU, such as for
+ * preview thumbnails or as a reference for the shaders. It looks up the kernel in a
+ * {@link GaussianKernelTable} and does the same linearly sampled passes as
+ * {@link LinearGaussianBlurAlgorithm} at full size, so its output matches {@link GaussianBlurReference}
+ * exactly. The rows and then the columns are split into stripes on a ForkJoinPool.
+ * <p>
+ * Working buffers are kept between calls, so an instance should only be used by one thread at a
+ * time.
+ */
+public class CpuGaussianBlur implements Disposable {
+
+    /** The number of rows or columns below which a stripe is not split further. */
+    private static final int STRIPE_SIZE = 16;
+
+    private final int maxRadius;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final GaussianKernelTable kernelTable;
+    private final float[] weights;
+    private final float[] offsets;
+    private float sigma = -1;
+    private float weightAtCenter;
+    private float[] pixels = new float[0];
+    private float[] pass1 = new float[0];
+
+    /** Creates an instance with its own ForkJoinPool, which is shut down by {@link #dispose()}. */
+    public CpuGaussianBlur(int maxRadius){
+        this(maxRadius, null);
+    }
+
+    /**
+     * @param maxRadius The max radius of the blur, which limits the kernel size. It is rounded up
+     *                  to an even number like it is for the shaders.
+     * @param pool The pool to run the stripes on, or null to create one.
+     */
+    public CpuGaussianBlur(int maxRadius, ForkJoinPool pool){
+        if (maxRadius < 2 || maxRadius > GaussianBlur.MAX_RADIUS){
+            throw new GdxRuntimeException(
+                    "Radius must be between 2 and " + GaussianBlur.MAX_RADIUS + " inclusive.");
+        }
+        if (maxRadius % 2 != 0)
+            maxRadius++;
+        this.maxRadius = maxRadius;
+        kernelTable = new GaussianKernelTable(maxRadius);
+        weights = new float[maxRadius / 2];
+        offsets = new float[maxRadius / 2];
+        ownsPool = pool == null;
+        this.pool = ownsPool ? new ForkJoinPool() : pool;
+    }
+
+    public int getMaxRadius() {
+        return maxRadius;
+    }
+
+    /**
+     * Blurs ARGB8888 pixels in place.
+     * @param argb Pixels in rows, packed as 0xAARRGGBB.
+     */
+    public void blur(int[] argb, int width, int height, float radius){
+        int count = width * height;
+        if (argb.length < count)
+            throw new GdxRuntimeException("Pixel array is too small for the given size.");
+        if (!prepare(count, radius))
+            return;
+        for (int i = 0; i < count; i++){
+            int color = argb[i];
+            int j = i * 4;
+            pixels[j] = (color >>> 16) & 0xff;
+            pixels[j + 1] = (color >>> 8) & 0xff;
+            pixels[j + 2] = color & 0xff;
+            pixels[j + 3] = color >>> 24;
+        }
+        blurPixels(width, height);
+        for (int i = 0; i < count; i++){
+            int j = i * 4;
+            argb[i] = toByte(pixels[j + 3]) << 24 | toByte(pixels[j]) << 16 |
+                    toByte(pixels[j + 1]) << 8 | toByte(pixels[j + 2]);
+        }
+    }
+
+    /** Blurs an RGBA8888 pixmap in place. */
+    public void blur(Pixmap pixmap, float radius){
+        if (pixmap.getFormat() != Pixmap.Format.RGBA8888)
+            throw new GdxRuntimeException("Only RGBA8888 pixmaps can be blurred.");
+        int width = pixmap.getWidth();
+        int height = pixmap.getHeight();
+        int count = width * height;
+        if (!prepare(count, radius))
+            return;
+        ByteBuffer bytes = pixmap.getPixels();
+        for (int i = 0; i < count * 4; i++)
+            pixels[i] = bytes.get(i) & 0xff;
+        blurPixels(width, height);
+        for (int i = 0; i < count * 4; i++)
+            bytes.put(i, (byte)toByte(pixels[i]));
+    }
+
+    /** @return False if the radius is too small to blur. */
+    private boolean prepare(int count, float radius){
+        float sigma = radius / 3f;
+        if (sigma < GaussianBlur.MIN_SIGMA)
+            return false;
+        if (sigma != this.sigma){
+            this.sigma = sigma;
+            weightAtCenter = kernelTable.lookup(sigma, weights, offsets);
+        }
+        if (pixels.length < count * 4){
+            pixels = new float[count * 4];
+            pass1 = new float[count * 4];
+        }
+        return true;
+    }
+
+    private void blurPixels(int width, int height){
+        pool.invoke(new PassTask(true, width, height, 0, height));
+        pool.invoke(new PassTask(false, width, height, 0, width));
+    }
+
+    private static int toByte(float value){
+        return Math.min(255, Math.max(0, Math.round(value)));
+    }
+
+    /** Blurs a stripe of rows or columns, splitting it in half until it is small enough. */
+    private class PassTask extends RecursiveAction {
+        private final boolean rows;
+        private final int width, height, start, end;
+
+        PassTask(boolean rows, int width, int height, int start, int end){
+            this.rows = rows;
+            this.width = width;
+            this.height = height;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > STRIPE_SIZE){
+                int middle = (start + end) >>> 1;
+                invokeAll(new PassTask(rows, width, height, start, middle),
+                        new PassTask(rows, width, height, middle, end));
+            } else if (rows){
+                GaussianBlurReference.blurRows(pixels, pass1, width, height, start, end,
+                        weightAtCenter, weights, offsets);
+            } else {
+                GaussianBlurReference.blurColumns(pass1, pixels, width, height, start, end,
+                        weightAtCenter, weights, offsets);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Dual filter (dual Kawase) blur. The input is repeatedly downsampled by half with a five tap
+ * filter, and then upsampled back to full size with an eight tap filter. It uses far fewer texture
+ * fetches per pixel than a Gaussian blur at large radii, since most of the work is done at low
+ * resolution. The result only approximates a Gaussian blur, and the radius is approximate.
+ */
+public class DualKawaseBlurAlgorithm implements BlurAlgorithm {
+
+    public static final int MAX_ITERATIONS = 5;
+    /** Beyond this, gaps between the taps become visible. */
+    public static final float MAX_OFFSET = 3f;
+
+    private final int maxIterations;
+    private int iterations;
+    private float offset;
+    private float radius = -1;
+
+    private final GaussianBlurShaderProvider shaderProvider;
+    private final ShaderProgram downsampleShaderProgram;
+    private final ShaderProgram upsampleShaderProgram;
+    private FrameBuffer fboOutput;
+    private int width;
+    private int height;
+
+    /**
+     * @param maxIterations The maximum number of times the input may be halved, from 1 to
+     *                      {@link #MAX_ITERATIONS}. Each additional iteration roughly doubles the
+     *                      maximum radius.
+     */
+    public DualKawaseBlurAlgorithm(int maxIterations, float initialRadius, GaussianBlurShaderProvider shaderProvider){
+        if (maxIterations < 1 || maxIterations > MAX_ITERATIONS){
+            throw new GdxRuntimeException(
+                    "Iterations must be between 1 and " + MAX_ITERATIONS + " inclusive.");
+        }
+        this.maxIterations = maxIterations;
+        this.shaderProvider = shaderProvider;
+        downsampleShaderProgram = shaderProvider.obtainKawaseDownsampleShaderProgram();
+        upsampleShaderProgram = shaderProvider.obtainKawaseUpsampleShaderProgram();
+        setRadius(initialRadius);
+    }
+
+    @Override
+    public void dispose() {
+        shaderProvider.disposeShader(downsampleShaderProgram);
+        shaderProvider.disposeShader(upsampleShaderProgram);
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void freeFrameBuffers(BlurPassRenderer renderer) {
+        renderer.freeFrameBuffer(fboOutput);
+        fboOutput = null;
+    }
+
+    /**
+     * Approximate variance in full size pixels, treating each tap as a point sample plus the spread
+     * of its linear filtering.
+     */
+    private static float getVariance(int iterations, float offset){
+        float downsampleVariance = 0.225f + 0.125f * offset * offset; //in source pixels
+        float upsampleVariance = 0.15f + 0.25f * offset * offset;
+        float levelScale = ((1 << (2 * iterations)) - 1) / 3f; //sum of 4^(k-1) for each iteration
+        return levelScale * downsampleVariance + 4 * levelScale * upsampleVariance;
+    }
+
+    @Override
+    public int getMaxRadius() {
+        return (int)(3f * (float)Math.sqrt(getVariance(maxIterations, MAX_OFFSET)));
+    }
+
+    /** The radius is matched by choosing the fewest iterations that can reach it and then solving
+     * for the tap offset. */
+    @Override
+    public void setRadius(float radius) {
+        if (this.radius == radius)
+            return;
+        this.radius = radius;
+
+        float variance = radius * radius / 9f;
+        iterations = 1;
+        while (iterations < maxIterations && getVariance(iterations, MAX_OFFSET) < variance)
+            iterations++;
+
+        float levelScale = ((1 << (2 * iterations)) - 1) / 3f;
+        float offsetSquared = (variance - levelScale * (0.225f + 4 * 0.15f)) /
+                (levelScale * (0.125f + 4 * 0.25f));
+        offset = Math.min((float)Math.sqrt(Math.max(offsetSquared, 0f)), MAX_OFFSET);
+    }
+
+    @Override
+    public float getRadius() {
+        return radius;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public boolean shouldBlur() {
+        return radius > 3f * GaussianBlur.MIN_SIGMA;
+    }
+
+    @Override
+    public void blur(BlurPassRenderer renderer) {
+        freeFrameBuffers(renderer);
+        Texture source = renderer.getInput();
+        FrameBuffer sourceBuffer = null;
+        //Margins conservatively cover the whole blur radius at each level.
+        for (int level = 1; level <= iterations; level++){
+            FrameBuffer destination = renderer.obtainFrameBuffer(getLevelWidth(level), getLevelHeight(level));
+            renderer.beginPass(destination, source, downsampleShaderProgram, getMargin(level));
+            applyUniforms(downsampleShaderProgram, source);
+            renderer.endPass();
+            renderer.freeFrameBuffer(sourceBuffer);
+            sourceBuffer = destination;
+            source = destination.getColorBufferTexture();
+        }
+        //Each upsample can reuse the frame buffer freed by the downsample to the same level.
+        for (int level = iterations - 1; level >= 0; level--){
+            FrameBuffer destination;
+            if (level == 0){
+                destination = renderer.obtainOutputFrameBuffer(width, height);
+                renderer.beginOutputPass(destination, source, upsampleShaderProgram, 1);
+            } else {
+                destination = renderer.obtainFrameBuffer(getLevelWidth(level), getLevelHeight(level));
+                renderer.beginPass(destination, source, upsampleShaderProgram, getMargin(level));
+            }
+            applyUniforms(upsampleShaderProgram, source);
+            renderer.endPass();
+            renderer.freeFrameBuffer(sourceBuffer);
+            sourceBuffer = destination;
+            if (destination != null) //null if the output pass drew into the scene
+                source = destination.getColorBufferTexture();
+        }
+        fboOutput = sourceBuffer;
+    }
+
+    private int getLevelWidth(int level){
+        return Math.max(1, width >> level);
+    }
+
+    private int getLevelHeight(int level){
+        return Math.max(1, height >> level);
+    }
+
+    private int getMargin(int level){
+        return (int)Math.ceil(radius / (1 << level)) + 2;
+    }
+
+    private void applyUniforms(ShaderProgram shaderProgram, Texture source){
+        shaderProgram.setUniformf("u_halfPixel", 0.5f / source.getWidth(), 0.5f / source.getHeight());
+        shaderProgram.setUniformf("u_offset", offset);
+    }
+
+    @Override
+    public Texture getOutput() {
+        return fboOutput == null ? null : fboOutput.getColorBufferTexture();
+    }
+}
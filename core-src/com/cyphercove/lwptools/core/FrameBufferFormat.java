@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.GLFrameBuffer;
+
+/**
+ * Color formats for the frame buffers of a {@link GaussianBlur}. Support is probed from the GL
+ * version and extensions, and a format is also marked unsupported if creating a frame buffer with
+ * it fails, so the next one in its fallback chain is used instead.
+ */
+public enum FrameBufferFormat {
+
+    /** 16 bit color without alpha. Half the bandwidth of RGBA8888. Always supported. */
+    RGB565(Pixmap.Format.RGB565, 2),
+    /** 32 bit color with alpha. Falls back to RGB565. */
+    RGBA8888(Pixmap.Format.RGBA8888, 4),
+    /** 16 bit float per channel (RGBA16F), for colors brighter than 1. Twice the bandwidth of
+     * RGBA8888. Needs GL ES 3.0 and a half float color buffer extension. Falls back to RGBA8888. */
+    HalfFloat(null, 8);
+
+    private final Pixmap.Format pixmapFormat;
+    private final int bytesPerPixel;
+    private Boolean supported; //null until probed
+
+    FrameBufferFormat(Pixmap.Format pixmapFormat, int bytesPerPixel){
+        this.pixmapFormat = pixmapFormat;
+        this.bytesPerPixel = bytesPerPixel;
+    }
+
+    public int getBytesPerPixel() {
+        return bytesPerPixel;
+    }
+
+    /** @return The format to try if this one is unsupported, or null if it is always supported. */
+    public FrameBufferFormat getFallback(){
+        switch (this){
+            case HalfFloat:
+                return RGBA8888;
+            case RGBA8888:
+                return RGB565;
+            default:
+                return null;
+        }
+    }
+
+    /** @return Whether this format is expected to be supported. Must be called on the GL thread. */
+    public boolean isSupported(){
+        if (supported == null)
+            supported = probe();
+        return supported;
+    }
+
+    /** @return This format if it's supported, or the first supported format in its fallback chain. */
+    public FrameBufferFormat resolve(){
+        FrameBufferFormat format = this;
+        while (!format.isSupported())
+            format = format.getFallback();
+        return format;
+    }
+
+    private boolean probe(){
+        switch (this){
+            case HalfFloat:
+                //RGBA16F textures are always linearly filterable in GL ES 3.0, but rendering to them
+                //needs an extension. The GL ES 2.0 half float extensions use different constants.
+                if (!Gdx.graphics.isGL30Available())
+                    return false;
+                if (Gdx.app.getType() == Application.ApplicationType.Desktop)
+                    return true;
+                return Gdx.graphics.supportsExtension("GL_EXT_color_buffer_half_float") ||
+                        Gdx.graphics.supportsExtension("GL_EXT_color_buffer_float");
+            default:
+                //RGBA8888 texture attachments work on nearly all GL ES 2.0 devices, but there is no
+                //extension that promises it. Failure is handled when creating the frame buffer.
+                return true;
+        }
+    }
+
+    /**
+     * Creates a frame buffer in this format, or in the first of its fallbacks that succeeds. Formats
+     * that fail are marked unsupported, so {@link #resolve()} afterwards returns the format that was
+     * actually created. Its color texture is linearly filtered, which the blur passes rely on.
+     */
+    FrameBuffer createFrameBuffer(int width, int height, boolean hasDepth){
+        FrameBufferFormat format = resolve();
+        while (true){
+            try {
+                FrameBuffer frameBuffer;
+                if (format == HalfFloat){
+                    GLFrameBuffer.FrameBufferBuilder builder = new GLFrameBuffer.FrameBufferBuilder(width, height);
+                    builder.addColorTextureAttachment(GL30.GL_RGBA16F, GL20.GL_RGBA, GL30.GL_HALF_FLOAT);
+                    if (hasDepth)
+                        builder.addBasicDepthRenderBuffer();
+                    frameBuffer = builder.build();
+                } else {
+                    frameBuffer = new FrameBuffer(format.pixmapFormat, width, height, hasDepth);
+                }
+                //Float textures default to nearest filtering on some backends.
+                frameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+                return frameBuffer;
+            } catch (IllegalStateException e) {
+                FrameBufferFormat fallback = format.getFallback();
+                if (fallback == null)
+                    throw e;
+                format.supported = false;
+                Gdx.app.log("FrameBufferFormat",
+                        "Could not create " + format + " FrameBuffer. Switching to " + fallback + ".");
+                format = fallback;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Frame buffers that can be shared by multiple {@link GaussianBlur}s for targets that are only
+ * needed while blurring. Free frame buffers are matched by format, size, and depth. When the free
+ * frame buffers exceed the byte limit, the least recently freed ones are disposed.
+ * <p>
+ * libGDX recreates managed frame buffers after a context loss, so pooled frame buffers stay valid,
+ * though their contents are lost. Call {@link #clear()} when pausing to give back the memory of
+ * the free ones.
+ */
+public class FrameBufferPool implements Disposable {
+
+    /** The default limit on the memory of free frame buffers, 16MB. */
+    public static final int DEFAULT_MAX_FREE_BYTES = 16 * 1024 * 1024;
+
+    private static class Entry {
+        FrameBuffer frameBuffer;
+        FrameBufferFormat format;
+        int width;
+        int height;
+        boolean hasDepth;
+        int bytes;
+    }
+
+    private final Array<Entry> free = new Array<Entry>(); //least recently freed first
+    private final Array<Entry> inUse = new Array<Entry>();
+    private int maxFreeBytes;
+    private int freeBytes;
+    private int inUseBytes;
+    private int hits;
+    private int misses;
+
+    public FrameBufferPool(){
+        this(DEFAULT_MAX_FREE_BYTES);
+    }
+
+    public FrameBufferPool(int maxFreeBytes){
+        this.maxFreeBytes = maxFreeBytes;
+    }
+
+    /**
+     * @return A free frame buffer with matching parameters, or a new one if there are none. It must
+     * be returned with {@link #free(FrameBuffer)} when it's no longer needed.
+     */
+    public FrameBuffer obtain(FrameBufferFormat format, int width, int height, boolean hasDepth){
+        format = format.resolve();
+        for (int i = free.size - 1; i >= 0; i--){
+            Entry entry = free.get(i);
+            if (entry.format == format && entry.width == width && entry.height == height && entry.hasDepth == hasDepth){
+                free.removeIndex(i);
+                freeBytes -= entry.bytes;
+                inUse.add(entry);
+                inUseBytes += entry.bytes;
+                hits++;
+                return entry.frameBuffer;
+            }
+        }
+
+        Entry entry = new Entry();
+        entry.frameBuffer = format.createFrameBuffer(width, height, hasDepth);
+        format = format.resolve(); //the format actually created, if this one failed
+        entry.format = format;
+        entry.width = width;
+        entry.height = height;
+        entry.hasDepth = hasDepth;
+        entry.bytes = getBytes(format, width, height, hasDepth);
+        inUse.add(entry);
+        inUseBytes += entry.bytes;
+        misses++;
+        return entry.frameBuffer;
+    }
+
+    /** Returns a frame buffer obtained from this pool. Its contents may be overwritten by the next user. */
+    public void free(FrameBuffer frameBuffer){
+        for (int i = 0; i < inUse.size; i++){
+            Entry entry = inUse.get(i);
+            if (entry.frameBuffer == frameBuffer){
+                inUse.removeIndex(i);
+                inUseBytes -= entry.bytes;
+                free.add(entry);
+                freeBytes += entry.bytes;
+                trim(maxFreeBytes);
+                return;
+            }
+        }
+        throw new GdxRuntimeException("The frame buffer was not obtained from this pool.");
+    }
+
+    /** Disposes the least recently freed frame buffers until the free ones fit in the given size. */
+    private void trim(int maxBytes){
+        while (freeBytes > maxBytes){
+            Entry entry = free.removeIndex(0);
+            freeBytes -= entry.bytes;
+            entry.frameBuffer.dispose();
+        }
+    }
+
+    /** Disposes all free frame buffers. Frame buffers that are in use are unaffected. */
+    public void clear(){
+        trim(0);
+    }
+
+    public int getMaxFreeBytes() {
+        return maxFreeBytes;
+    }
+
+    public void setMaxFreeBytes(int maxFreeBytes) {
+        this.maxFreeBytes = maxFreeBytes;
+        trim(maxFreeBytes);
+    }
+
+    /** @return The estimated video memory of all the pool's frame buffers, free or in use. */
+    public int getBytesHeld(){
+        return freeBytes + inUseBytes;
+    }
+
+    /** @return The estimated video memory of the free frame buffers. */
+    public int getFreeBytes(){
+        return freeBytes;
+    }
+
+    public int getHitCount() {
+        return hits;
+    }
+
+    public int getMissCount() {
+        return misses;
+    }
+
+    /** @return The fraction of calls to {@link #obtain(FrameBufferFormat, int, int, boolean)} that
+     * reused a free frame buffer. */
+    public float getHitRate(){
+        int total = hits + misses;
+        return total == 0 ? 0f : (float)hits / total;
+    }
+
+    public void resetStats(){
+        hits = 0;
+        misses = 0;
+    }
+
+    static int getBytes(FrameBufferFormat format, int width, int height, boolean hasDepth){
+        int bytesPerPixel = format.getBytesPerPixel();
+        if (hasDepth)
+            bytesPerPixel += 2; //FrameBuffer uses a 16 bit depth buffer
+        return width * height * bytesPerPixel;
+    }
+
+    /** Disposes all frame buffers, including those in use. */
+    @Override
+    public void dispose() {
+        clear();
+        for (Entry entry : inUse)
+            entry.frameBuffer.dispose();
+        inUse.clear();
+        inUseBytes = 0;
+    }
+}
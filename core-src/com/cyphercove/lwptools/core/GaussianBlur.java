@@ -21,15 +21,14 @@ import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
 public class GaussianBlur implements Disposable{
 
-    public static final int MAX_RADIUS = 8; //Increasing it beyond 8 would require extra vec4s for offsets and weights
-    private int maxRadius;
+    public static final int MAX_RADIUS = 32; //Beyond this, the fragment uniforms could exceed the GL ES 2.0 minimum
     public static final float MIN_SIGMA = 0.28f; //sigma less than this means blurring will be unnoticeable.
 
     private boolean blendingEnabled = false;
@@ -37,32 +36,69 @@ public class GaussianBlur implements Disposable{
     private int blendDstFunc = GL20.GL_ONE_MINUS_SRC_ALPHA;
     private Color clearColor = new Color(0,0,0,1);
     private SpriteBatch spriteBatch;
-    private ShaderProgram blurPassShaderProgram;
+    private final BlurAlgorithm algorithm;
+    private final BlurPassRenderer blurPassRenderer;
+    private FrameBufferPool frameBufferPool;
+    private boolean ownsFrameBufferPool;
     private FrameBuffer fboInitialTargetStandard;
     private FrameBuffer fboInitialTargetInverted;
     private boolean keepInverseTarget;
     private boolean useInverseTarget;
-    private FrameBuffer fboPass1;
-    private FrameBuffer fboPass2;
-    private float horizontalOnePixelSize;
-    private float verticalOnePixelSize;
-    private final float[] tmpArray = new float[MAX_RADIUS+1];
-    private float[] offsets = new float[4];
-    private float weightAtCenter;
-    private float[] weights = new float[4];
-    private float sigma = -1;
     private int currentWidth = -1;
     private int currentHeight = -1;
 
-    private Matrix4 fboToSceneProjectionMatrix;
-    private Matrix4 fboToSceneProjectionMatrixLeft;
-    private Matrix4 fboToSceneProjectionMatrixRight;
+    private boolean contentTracking = false;
+    private int contentGeneration = 0;
+    private boolean hasBlurredOutput = false;
+    private int blurredContentGeneration;
+    private float blurredRadius;
+    private boolean blurredInverseTarget;
 
-    GaussianBlurShaderProvider shaderProvider;
+    private boolean hasBlurRegion = false;
+    private final Rectangle blurRegion = new Rectangle(); //normalized, in the initial target
+    private final Rectangle outputRegion = new Rectangle(); //normalized, in the algorithm's output
+
+    private FormatPolicy formatPolicy = FormatPolicy.Alpha;
+    private int frameBlurBytes;
+    private boolean blurredToScene;
+
+    private boolean fusedComposite = false;
+    private boolean blurPending;
+
+    private boolean amortized = false;
+    private int amortizedStage = 0; //the next stage, or 0 if none is in progress
+    private long amortizedStageFrameId;
+    private int amortizedContentGeneration;
+    private boolean amortizedInverseTarget;
+
+    private final OrthographicCamera sceneCamera = new OrthographicCamera(2,2); //reused so depth can be animated
+    private final Matrix4 fboToSceneProjectionMatrix = new Matrix4();
+    private final Matrix4 fboToSceneProjectionMatrixLeft = new Matrix4();
 
     private boolean hasDepth = true;
     private boolean depthTestingToScene = true;
 
+    /** How the color format of the frame buffers is chosen. */
+    public enum FormatPolicy {
+        /** RGBA8888, falling back to RGB565. */
+        Alpha(FrameBufferFormat.RGBA8888),
+        /** RGB565, for scenes that don't need alpha. Half the bandwidth of RGBA8888. */
+        Opaque(FrameBufferFormat.RGB565),
+        /** Half float, falling back to RGBA8888. For HDR scenes with colors brighter than 1. */
+        HighDynamicRange(FrameBufferFormat.HalfFloat);
+
+        private final FrameBufferFormat format;
+
+        FormatPolicy(FrameBufferFormat format){
+            this.format = format;
+        }
+
+        /** @return The preferred format, which might not be supported. */
+        public FrameBufferFormat getFormat() {
+            return format;
+        }
+    }
+
     public interface CustomShaderPreparer {
         void applyCustomShaderParameters(SpriteBatch spriteBatch, boolean flipped);
     }
@@ -93,40 +129,39 @@ public class GaussianBlur implements Disposable{
      */
     public GaussianBlur(float initialAndMaxRadius, boolean hasDepth, boolean keepInverseTarget,
                         GaussianBlurShaderProvider shaderProvider){
-        if (initialAndMaxRadius < 0 || initialAndMaxRadius > MAX_RADIUS){
-            throw new GdxRuntimeException(
-                    "Radius must be between 0 and " + MAX_RADIUS + " inclusive.");
-        }
+        this(hasDepth, keepInverseTarget, new LinearGaussianBlurAlgorithm(initialAndMaxRadius, shaderProvider));
+    }
 
+    /**
+     *
+     * @param hasDepth
+     * @param keepInverseTarget Whether, when resizing, to create two target frame buffers so a screen
+     *                          rotation can be done quickly without a pause.
+     * @param algorithm The algorithm that performs the blur passes. It is owned by this GaussianBlur
+     *                  and disposed with it. This allows a cheaper algorithm to be selected for
+     *                  weaker devices without changing how the blur is used.
+     */
+    public GaussianBlur(boolean hasDepth, boolean keepInverseTarget, BlurAlgorithm algorithm){
         this.hasDepth = hasDepth;
         this.keepInverseTarget = keepInverseTarget;
         this.useInverseTarget = false;
         spriteBatch = new SpriteBatch(1);
-
-        this.maxRadius = (int)Math.ceil(initialAndMaxRadius);
-        if (this.maxRadius % 2 != 0)
-            this.maxRadius++; //round up to nearest even integer.
-        offsets = new float[this.maxRadius /2];
-        weights = new float[this.maxRadius /2];
-        setRadius(initialAndMaxRadius);
+        this.algorithm = algorithm;
+        frameBufferPool = new FrameBufferPool();
+        ownsFrameBufferPool = true;
+        blurPassRenderer = new BlurPassRenderer(spriteBatch, frameBufferPool, formatPolicy.getFormat());
 
         setTextureToSceneDepth(0.9999999f);//By default draw behind everything.
-
-        this.shaderProvider = shaderProvider;
-
-        if (initialAndMaxRadius > 0)
-            blurPassShaderProgram = shaderProvider.obtainBlurPassShaderProgram(this.maxRadius);
-
     }
 
     @Override
     public void dispose() {
         if (fboInitialTargetStandard !=null) fboInitialTargetStandard.dispose();
         if (fboInitialTargetInverted !=null) fboInitialTargetInverted.dispose();
-        if (fboPass1!=null) fboPass1.dispose();
-        if (fboPass2!=null) fboPass2.dispose();
+        algorithm.freeFrameBuffers(blurPassRenderer);
+        algorithm.dispose();
+        if (ownsFrameBufferPool) frameBufferPool.dispose();
         spriteBatch.dispose();
-        shaderProvider.disposeShader(blurPassShaderProgram);
     }
 
     /**
@@ -148,8 +183,11 @@ public class GaussianBlur implements Disposable{
         if (fboInitialTargetStandard != null && currentWidth==textureWidth && currentHeight==textureHeight)
             return;
 
+        hasBlurredOutput = false;
+
         if (keepInverseTarget && currentWidth==textureHeight && currentHeight==textureWidth){
             useInverseTarget = !useInverseTarget;
+            amortizedStage = 0; //a stage in progress is in the old orientation
             currentWidth = textureWidth;
             currentHeight = textureHeight;
             return;
@@ -157,7 +195,15 @@ public class GaussianBlur implements Disposable{
 
         currentWidth = textureWidth;
         currentHeight = textureHeight;
+        createTargets(textureWidth, textureHeight);
+    }
 
+    /** @return Whether the last resize swapped to the inverse target, so frames draw into it. */
+    boolean isUsingInverseTarget(){
+        return useInverseTarget;
+    }
+
+    private void createTargets(int textureWidth, int textureHeight){
         if (fboInitialTargetStandard != null)
             fboInitialTargetStandard.dispose();
         fboInitialTargetStandard = getLinearFrameBuffer(textureWidth, textureHeight, hasDepth);
@@ -168,47 +214,84 @@ public class GaussianBlur implements Disposable{
             fboInitialTargetInverted = getLinearFrameBuffer(textureHeight, textureWidth, hasDepth);
         }
 
-        if (maxRadius > 0) {
-            if (fboPass1 != null)
-                fboPass1.dispose();
-            fboPass1 = getLinearFrameBuffer(textureWidth, textureHeight, false);
-            if (fboPass2 != null)
-                fboPass2.dispose();
-            fboPass2 = getLinearFrameBuffer(textureWidth, textureHeight, false);
+        algorithm.freeFrameBuffers(blurPassRenderer);
+        amortizedStage = 0;
+        algorithm.resize(textureWidth, textureHeight);
+    }
+
+    private FrameBuffer getLinearFrameBuffer(int width, int height, boolean hasDepth){
+        return formatPolicy.getFormat().createFrameBuffer(width, height, hasDepth);
+    }
 
-            verticalOnePixelSize = 1f / (float) textureHeight;
-            horizontalOnePixelSize = 1f / (float) textureWidth;
+    /**
+     * Sets how the color format of the initial target and the blur passes is chosen. Frame buffers
+     * are recreated if they already exist. The default is {@link FormatPolicy#Alpha}.
+     */
+    public void setFormatPolicy(FormatPolicy formatPolicy){
+        if (this.formatPolicy == formatPolicy)
+            return;
+        this.formatPolicy = formatPolicy;
+        blurPassRenderer.setFormat(formatPolicy.getFormat());
+        if (fboInitialTargetStandard != null){
+            int width = fboInitialTargetStandard.getWidth();
+            int height = fboInitialTargetStandard.getHeight();
+            hasBlurredOutput = false;
+            createTargets(width, height);
         }
     }
 
-    private static boolean try8888 = true;
-    private static FrameBuffer getLinearFrameBuffer(int width, int height, boolean hasDepth){
+    public FormatPolicy getFormatPolicy() {
+        return formatPolicy;
+    }
 
-        if (try8888) {
-            try {
-                FrameBuffer frameBuffer = new FrameBuffer(
-                        Pixmap.Format.RGBA8888, width, height, hasDepth);
-                return frameBuffer;
-            } catch (IllegalStateException e) {
-                try8888 = false;
-                Gdx.app.log("GaussianBlur.getLinearFrameBuffer",
-                        "Could not create RGBA8888 FrameBuffer. Switching to RGB565.");
-            }
-        }
+    /** @return The format that frame buffers are created with, after falling back from any that are
+     * unsupported. */
+    public FrameBufferFormat getTargetFormat(){
+        return formatPolicy.getFormat().resolve();
+    }
 
-        return new FrameBuffer(
-                Pixmap.Format.RGB565, width, height, hasDepth);
+    /**
+     * @return An estimate of the bytes of color written and read per frame by drawing the scene
+     * into the initial target, the blur passes of the most recent {@link #end()}, and drawing the
+     * result with {@link #render()}. Depth, overdraw, and texture caching are not accounted for. If
+     * the previous blur was reused, its passes are not counted.
+     */
+    public int getBandwidthPerFrame(){
+        if (fboInitialTargetStandard == null)
+            return 0;
+        int targetBytes = currentWidth * currentHeight * getTargetFormat().getBytesPerPixel();
+        if (blurredToScene)
+            return targetBytes + frameBlurBytes; //the scene draw; the passes include the final read
+        return 2 * targetBytes + frameBlurBytes; //the scene draw and the read by render()
     }
 
-    public int getMaxRadius() {
-        return maxRadius;
+    /**
+     * Sets the pool that the frame buffers for the blur passes are borrowed from. Sharing a pool
+     * lets multiple GaussianBlurs that are drawn one after another use the same frame buffers. The
+     * pool is not disposed by this GaussianBlur. By default, each GaussianBlur has its own pool.
+     * @param frameBufferPool The pool to use, or null to go back to a pool of its own.
+     */
+    public void setFrameBufferPool(FrameBufferPool frameBufferPool){
+        algorithm.freeFrameBuffers(blurPassRenderer);
+        hasBlurredOutput = false;
+        amortizedStage = 0;
+        if (ownsFrameBufferPool)
+            this.frameBufferPool.dispose();
+        ownsFrameBufferPool = frameBufferPool == null;
+        this.frameBufferPool = ownsFrameBufferPool ? new FrameBufferPool() : frameBufferPool;
+        blurPassRenderer.setFrameBufferPool(this.frameBufferPool);
+    }
+
+    public FrameBufferPool getFrameBufferPool() {
+        return frameBufferPool;
     }
 
-    //Private because untested.
-    private void setMaxRadius(int maxRadius) {
-        shaderProvider.disposeShader(blurPassShaderProgram);
-        shaderProvider.obtainBlurPassShaderProgram(maxRadius);
-        setRadius(maxRadius);
+    public BlurAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getMaxRadius() {
+        return algorithm.getMaxRadius();
     }
 
     /**
@@ -217,62 +300,124 @@ public class GaussianBlur implements Disposable{
      * @param radius
      */
     public void setRadius (float radius){
-        setSigma(radius / 3f);
+        algorithm.setRadius(radius);
     }
 
     public float getRadius (){
-        return 3f * sigma;
+        return algorithm.getRadius();
     }
 
-    /** Prepare to use linear filtering to sample two points by controlling offsets. Method described
-     * here: http://rastergrid.com/blog/2010/09/efficient-gaussian-blur-with-linear-sampling/*/
-    private void setSigma(float sigma){
+    public float getSigma(){
+        return algorithm.getRadius() / 3f;
+    }
 
-        if (this.sigma != sigma){
-            this.sigma = sigma;
+    protected boolean shouldBlur(){
+        return algorithm.shouldBlur();
+    }
 
-            if (sigma < MIN_SIGMA)
-                return;
+    /**
+     * Sets whether the blur passes are skipped when the content hasn't changed since the last blur.
+     * If enabled, {@link #markContentChanged()} must be called whenever the scene drawn between
+     * {@link #begin()} and {@link #end()} changes, or if the algorithm is changed in any way other
+     * than its radius. The previous blur is reused as long as the content generation, radius, and
+     * target orientation are unchanged. This is off by default.
+     */
+    public void setContentTracking(boolean contentTracking) {
+        this.contentTracking = contentTracking;
+    }
 
-            if (maxRadius == 0)
-                return;
+    public boolean isContentTracking() {
+        return contentTracking;
+    }
 
-            //Calculate standard weights
-            float twoSigmaSquared = 2*sigma*sigma;
-            float weightSum = 0;
-            for (int i=0; i <= maxRadius; i++){
-                tmpArray[i] = (1.0f / (MathUtils.PI * twoSigmaSquared)) *
-                        (float)Math.exp(-(double)(i*i) / (double)twoSigmaSquared);
-                weightSum += i==0 ? tmpArray[i] : 2*tmpArray[i];
-            }
+    /**
+     * Advances the content generation, so the next call to {@link #end()} will blur again. Only
+     * used if content tracking is enabled.
+     */
+    public void markContentChanged() {
+        contentGeneration++;
+    }
 
-            //Normalize them to avoid darkening
-            for (int i=0; i <= maxRadius; i++){
-                tmpArray[i] /= weightSum;
-            }
+    public int getContentGeneration() {
+        return contentGeneration;
+    }
 
-            //The first weight doesn't use the linear sampling optimization because it is at the
-            //center
-            weightAtCenter = tmpArray[0];
-
-            //Fill into the optimized arrays
-            for (int i=0; i < offsets.length; i++)
-            {
-                float left = tmpArray[i*2 + 1];
-                float right = tmpArray[i*2 + 2];
-                weights[i] = left + right;
-                offsets[i] = (left * (i*2 + 1) + right * (i*2 + 2)) / weights[i];
-            }
+    private boolean isBlurCurrent(){
+        return contentTracking && hasBlurredOutput && blurredContentGeneration == contentGeneration
+                && blurredRadius == algorithm.getRadius() && blurredInverseTarget == useInverseTarget;
+    }
 
-        }
+    /**
+     * @return Whether the scene needs to be drawn between {@link #begin()} and {@link #end()} this
+     * frame. If false, the previous blur will be reused, so begin() and end() can be skipped and
+     * {@link #render()} called directly. Always true if content tracking is disabled.
+     */
+    public boolean needsRedraw(){
+        if (amortized && amortizedStage != 0)
+            return false; //the stages in progress don't read the scene
+        return !(shouldBlur() && isBlurCurrent());
     }
 
-    public float getSigma(){
-        return sigma;
+    /**
+     * Limits blurring and rendering to a region of the scene, for example the area behind a panel.
+     * The blur passes are scissored to the region, expanded by however far each pass can reach, and
+     * {@link #render()} only draws the region. Coordinates are normalized to the initial target,
+     * with the origin at the bottom left.
+     */
+    public void setBlurRegion(float x, float y, float width, float height){
+        blurRegion.set(x, y, width, height);
+        hasBlurRegion = true;
+        hasBlurredOutput = false;
     }
 
-    protected boolean shouldBlur(){
-        return maxRadius != 0 && sigma > MIN_SIGMA;
+    /** Removes the blur region, so the whole scene is blurred and rendered. */
+    public void clearBlurRegion(){
+        hasBlurRegion = false;
+        hasBlurredOutput = false;
+    }
+
+    public boolean hasBlurRegion() {
+        return hasBlurRegion;
+    }
+
+    /**
+     * Sets whether the last blur pass draws straight into the scene when {@link #render()} is
+     * called, instead of into a frame buffer that is then drawn into the scene. This saves a full
+     * size write and read per frame. The configured blending, depth, and texture-to-scene depth are
+     * used for the fused pass. The blur passes are deferred from {@link #end()} to render(), so the
+     * previous blur can't be reused by content tracking. The {@link CustomShaderPreparer} is still
+     * applied to the fused pass, with the same flipped flag as the unfused path, while the batch
+     * holds the algorithm's output shader. A custom shader can't be fused with the blur shader, so
+     * on frames where {@link #render(ShaderProgram)} is given one, the blur is done unfused and the
+     * custom shader draws its output as usual. This is off by default.
+     */
+    public void setFusedComposite(boolean fusedComposite) {
+        this.fusedComposite = fusedComposite;
+        hasBlurredOutput = false;
+    }
+
+    public boolean isFusedComposite() {
+        return fusedComposite;
+    }
+
+    /**
+     * Sets whether the blur passes are spread across consecutive frames. Each frame performs one
+     * stage, such as the horizontal pass on one frame and the vertical pass on the next, so the
+     * blur costs about half as much per frame. The result lags the scene by the number of stages,
+     * so this suits slowly changing backdrops. While a blur is in progress,
+     * {@link #needsRedraw()} returns false, and later stages are done by {@link #render()}.
+     * Takes precedence over {@link #setFusedComposite(boolean)}. This is off by default.
+     * @throws GdxRuntimeException if enabled when the algorithm isn't an {@link AmortizableBlurAlgorithm}.
+     */
+    public void setAmortized(boolean amortized) {
+        if (amortized && !(algorithm instanceof AmortizableBlurAlgorithm))
+            throw new GdxRuntimeException("The blur algorithm does not support amortization.");
+        this.amortized = amortized;
+        amortizedStage = 0;
+    }
+
+    public boolean isAmortized() {
+        return amortized;
     }
 
     /**
@@ -293,21 +438,18 @@ public class GaussianBlur implements Disposable{
 
     /**
      * Set the normalized depth that the texture is rendered at if depthTestingToScene it true.
+     * Doesn't allocate, so it can be animated.
      */
     public void setTextureToSceneDepth(float depth){
-        OrthographicCamera tempCam = new OrthographicCamera(2,2);
-        tempCam.position.set(0,0,depth);
-        tempCam.near = 0;
-        tempCam.far = 1;
-        tempCam.update();
-        fboToSceneProjectionMatrix = new Matrix4(tempCam.combined);
-        tempCam.up.set(1,0,0);
-        tempCam.update();
-        fboToSceneProjectionMatrixRight = new Matrix4(tempCam.combined);
-        tempCam.up.set(-1,0,0);
-        tempCam.update();
-        fboToSceneProjectionMatrixLeft = new Matrix4(tempCam.combined);
-
+        sceneCamera.position.set(0,0,depth);
+        sceneCamera.near = 0;
+        sceneCamera.far = 1;
+        sceneCamera.up.set(0,1,0);
+        sceneCamera.update();
+        fboToSceneProjectionMatrix.set(sceneCamera.combined);
+        sceneCamera.up.set(-1,0,0);
+        sceneCamera.update();
+        fboToSceneProjectionMatrixLeft.set(sceneCamera.combined);
     }
 
     public void begin(){
@@ -328,30 +470,6 @@ public class GaussianBlur implements Disposable{
         }
     }
 
-    private void doBlurPass(FrameBuffer fboInput, boolean vertical) {
-        GL20 gl = Gdx.gl20;
-        gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
-        spriteBatch.setShader(blurPassShaderProgram);
-        gl.glDisable(GL20.GL_BLEND);
-        spriteBatch.begin();
-        if (useInverseTarget) {
-            blurPassShaderProgram.setUniformf("u_size",
-                    vertical ? horizontalOnePixelSize : verticalOnePixelSize,
-                    0);
-        } else {
-            blurPassShaderProgram.setUniformf("u_size",
-                    vertical ? 0 : horizontalOnePixelSize,
-                    vertical ? verticalOnePixelSize : 0);
-        }
-        blurPassShaderProgram.setUniform4fv("u_offsets", offsets, 0, 4);
-        blurPassShaderProgram.setUniformf("u_weightAtCenter", weightAtCenter);
-        blurPassShaderProgram.setUniform4fv("u_weights", weights, 0, 4);
-
-        spriteBatch.draw(fboInput.getColorBufferTexture(), -1, -1, 2, 2);
-        spriteBatch.end();
-        spriteBatch.setShader(null);
-    }
-
     /**Disables depth testing. Must re-enable it if 3D API is expecting it in its RenderContext
      *
      */
@@ -367,29 +485,127 @@ public class GaussianBlur implements Disposable{
             spriteBatch.disableBlending();
             Gdx.gl.glDisable(GL20.GL_DEPTH_TEST);
 
-            //rotate if using the inverse target
-            if (useInverseTarget){
-                spriteBatch.setProjectionMatrix(fboToSceneProjectionMatrixRight);
-            } else {
-                spriteBatch.setProjectionMatrix(fboToSceneProjectionMatrix);
+            if (isBlurCurrent()) {
+                frameBlurBytes = 0;
+                return; //reuse the previous output
             }
-            fboPass1.begin();
-            doBlurPass(initialTargetBuffer, false);
-            fboPass1.end();
-            if (useInverseTarget){ //don't rotate the second pass
-                spriteBatch.setProjectionMatrix(fboToSceneProjectionMatrix);
+
+            if (hasBlurRegion) {
+                if (useInverseTarget)
+                    outputRegion.set(blurRegion.y, 1f - blurRegion.x - blurRegion.width,
+                            blurRegion.height, blurRegion.width);
+                else
+                    outputRegion.set(blurRegion);
+            }
+
+            if (amortized) {
+                if (amortizedStage == 0)
+                    startAmortizedBlur(); //later stages are done by render() on later frames
+                return;
+            }
+
+            if (fusedComposite) {
+                algorithm.freeFrameBuffers(blurPassRenderer);
+                hasBlurredOutput = false;
+                blurPending = true; //done by render()
+                return;
             }
-            fboPass2.begin();
-            doBlurPass(fboPass1, true);
-            fboPass2.end();
+            blur();
+        }
+    }
+
+    private void blur(){
+        FrameBuffer initialTargetBuffer = useInverseTarget ? fboInitialTargetInverted : fboInitialTargetStandard;
+        spriteBatch.disableBlending();
+        Gdx.gl.glDisable(GL20.GL_DEPTH_TEST);
+        //rotate if using the inverse target
+        blurPassRenderer.setInput(initialTargetBuffer.getColorBufferTexture(), useInverseTarget,
+                hasBlurRegion ? outputRegion : null);
+        algorithm.blur(blurPassRenderer);
+        frameBlurBytes = blurPassRenderer.getBytesTransferred();
+        blurredToScene = false;
+
+        hasBlurredOutput = true;
+        blurredContentGeneration = contentGeneration;
+        blurredRadius = algorithm.getRadius();
+        blurredInverseTarget = useInverseTarget;
+    }
+
+    private void startAmortizedBlur(){
+        FrameBuffer initialTargetBuffer = useInverseTarget ? fboInitialTargetInverted : fboInitialTargetStandard;
+        blurPassRenderer.setInput(initialTargetBuffer.getColorBufferTexture(), useInverseTarget,
+                hasBlurRegion ? outputRegion : null);
+        amortizedContentGeneration = contentGeneration;
+        amortizedInverseTarget = useInverseTarget;
+        doAmortizedStage();
+    }
+
+    /** Does the next stage if one is in progress and it wasn't started this frame. */
+    private void continueAmortizedBlur(){
+        if (amortizedStage == 0 || Gdx.graphics.getFrameId() == amortizedStageFrameId)
+            return;
+        doAmortizedStage();
+    }
+
+    private void doAmortizedStage(){
+        AmortizableBlurAlgorithm amortizableAlgorithm = (AmortizableBlurAlgorithm)algorithm;
+        spriteBatch.disableBlending();
+        Gdx.gl.glDisable(GL20.GL_DEPTH_TEST);
+        int previousBytes = blurPassRenderer.getBytesTransferred();
+        amortizableAlgorithm.blurStage(blurPassRenderer, amortizedStage);
+        frameBlurBytes = blurPassRenderer.getBytesTransferred() - previousBytes;
+        blurredToScene = false;
+        amortizedStageFrameId = Gdx.graphics.getFrameId();
+
+        amortizedStage++;
+        if (amortizedStage == amortizableAlgorithm.getStageCount()){
+            amortizedStage = 0;
+            hasBlurredOutput = true;
+            blurredContentGeneration = amortizedContentGeneration;
+            blurredRadius = algorithm.getRadius();
+            blurredInverseTarget = amortizedInverseTarget;
         }
     }
 
+    /** Does all the blur passes, with the output pass drawing into the scene. */
+    private void blurToScene(){
+        spriteBatch.setColor(Color.WHITE);
+        if (useInverseTarget)
+            blurPassRenderer.setOutputToScene(fboToSceneProjectionMatrixLeft, 1, -1, -2, 2,
+                    blendingEnabled, blendSrcFunc, blendDstFunc, depthTestingToScene,
+                    customShaderPreparer, true);
+        else
+            blurPassRenderer.setOutputToScene(fboToSceneProjectionMatrix, -1, 1, 2, -2,
+                    blendingEnabled, blendSrcFunc, blendDstFunc, depthTestingToScene,
+                    customShaderPreparer, false);
+        blur();
+        blurPassRenderer.clearOutputToScene();
+        hasBlurredOutput = false; //there is no output to reuse
+        blurredToScene = true;
+    }
+
     public void render() {
         render(null);
     }
 
+    /**
+     * Draws the blurred scene, or the unblurred scene if the blur radius is zero, with a custom
+     * shader. In fused mode, a non-null custom shader makes this frame's blur unfused, since the
+     * output pass already has its own shader.
+     * @param customShader The shader to draw with, or null for SpriteBatch's default shader.
+     */
     public void render(ShaderProgram customShader){
+        if (amortized)
+            continueAmortizedBlur();
+        if (blurPending){
+            blurPending = false;
+            if (customShader == null){
+                blurToScene();
+                return;
+            }
+            blur(); //a custom shader can't also be the output pass's shader
+        }
+
         if (blendingEnabled){
             spriteBatch.setBlendFunction(blendSrcFunc, blendDstFunc);
             spriteBatch.enableBlending();
@@ -411,24 +627,24 @@ public class GaussianBlur implements Disposable{
         spriteBatch.setShader(customShader);
         spriteBatch.setColor(Color.WHITE);
 
-        if (shouldBlur()){
-            Texture texture = fboPass2.getColorBufferTexture();
+        Texture texture = shouldBlur() ? algorithm.getOutput() : null;
+        if (texture != null){
             if (useInverseTarget) {
                 spriteBatch.setProjectionMatrix(fboToSceneProjectionMatrixLeft);
                 spriteBatch.begin();
                 applyCustomShaderParameters(true);
-                spriteBatch.draw(texture, 1, -1, -2, 2);
+                draw(texture, 1, -1, -2, 2, outputRegion);
             }else{
                 spriteBatch.setProjectionMatrix(fboToSceneProjectionMatrix);
                 spriteBatch.begin();
                 applyCustomShaderParameters(false);
-                spriteBatch.draw(texture, -1, 1, 2, -2);
+                draw(texture, -1, 1, 2, -2, outputRegion);
             }
         } else{
-            Texture texture = initialTargetBuffer.getColorBufferTexture();
+            texture = initialTargetBuffer.getColorBufferTexture();
             spriteBatch.setProjectionMatrix(fboToSceneProjectionMatrix);
             spriteBatch.begin();
-            spriteBatch.draw(texture, -1, 1, 2, -2);
+            draw(texture, -1, 1, 2, -2, blurRegion);
         }
         spriteBatch.end();
 
@@ -439,6 +655,12 @@ public class GaussianBlur implements Disposable{
         }
     }
 
+    /** Draws the texture as it would be drawn in full, but only the given region if there is a blur
+     * region. */
+    private void draw(Texture texture, float x, float y, float width, float height, Rectangle region){
+        BlurPassRenderer.draw(spriteBatch, texture, x, y, width, height, hasBlurRegion ? region : null);
+    }
+
     public CustomShaderPreparer getCustomShaderPreparer() {
         return customShaderPreparer;
     }
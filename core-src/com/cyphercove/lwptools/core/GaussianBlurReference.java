@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * CPU version of the blur passes of {@link LinearGaussianBlurAlgorithm}, for checking the output of
+ * the shaders. It looks up the kernel in a {@link GaussianKernelTable} like the GPU does, and
+ * samples pairs of pixels the same way linear filtering does, with edges clamped, so results should
+ * match the GPU to within the precision of the frame buffers. Pixels are interleaved RGBA floats in
+ * rows.
+ */
+public final class GaussianBlurReference {
+
+    private GaussianBlurReference(){
+    }
+
+    /**
+     * Blurs the pixels in place with the same kernel the GPU would use at full size.
+     * @param maxRadius The max radius of the blur, which limits the kernel size. It is rounded up
+     *                  to an even number like it is for the shaders.
+     */
+    public static void blur(float[] pixels, int width, int height, int maxRadius, float radius){
+        if (pixels.length < width * height * 4)
+            throw new GdxRuntimeException("Pixel array is too small for the given size.");
+        if (maxRadius % 2 != 0)
+            maxRadius++;
+        float sigma = radius / 3f;
+        if (sigma < GaussianBlur.MIN_SIGMA || maxRadius == 0)
+            return;
+
+        float[] weights = new float[maxRadius / 2];
+        float[] offsets = new float[maxRadius / 2];
+        float weightAtCenter = new GaussianKernelTable(maxRadius).lookup(sigma, weights, offsets);
+
+        float[] pass1 = new float[width * height * 4];
+        blurRows(pixels, pass1, width, height, 0, height, weightAtCenter, weights, offsets);
+        blurColumns(pass1, pixels, width, height, 0, width, weightAtCenter, weights, offsets);
+    }
+
+    /** Blurs along x, for rows from start inclusive to end exclusive. */
+    static void blurRows(float[] source, float[] destination, int width, int height, int start, int end,
+                         float weightAtCenter, float[] weights, float[] offsets){
+        for (int y = start; y < end; y++){
+            int row = y * width;
+            for (int x = 0; x < width; x++){
+                int i = (row + x) * 4;
+                for (int c = 0; c < 4; c++){
+                    float sum = source[i + c] * weightAtCenter;
+                    for (int p = 0; p < weights.length; p++){
+                        sum += (sample(source, row, 1, width, x + offsets[p], c) +
+                                sample(source, row, 1, width, x - offsets[p], c)) * weights[p];
+                    }
+                    destination[i + c] = sum;
+                }
+            }
+        }
+    }
+
+    /** Blurs along y, for columns from start inclusive to end exclusive. */
+    static void blurColumns(float[] source, float[] destination, int width, int height, int start, int end,
+                            float weightAtCenter, float[] weights, float[] offsets){
+        for (int x = start; x < end; x++){
+            for (int y = 0; y < height; y++){
+                int i = (y * width + x) * 4;
+                for (int c = 0; c < 4; c++){
+                    float sum = source[i + c] * weightAtCenter;
+                    for (int p = 0; p < weights.length; p++){
+                        sum += (sample(source, x, width, height, y + offsets[p], c) +
+                                sample(source, x, width, height, y - offsets[p], c)) * weights[p];
+                    }
+                    destination[i + c] = sum;
+                }
+            }
+        }
+    }
+
+    /**
+     * Linearly interpolates between the two pixels nearest to a position along a line of pixels,
+     * clamping to the ends of the line.
+     * @param first The index of the first pixel of the line.
+     * @param stride The distance in pixels between adjacent pixels of the line.
+     * @param length The number of pixels in the line.
+     * @param position The position along the line, where whole numbers are pixel centers.
+     */
+    private static float sample(float[] source, int first, int stride, int length, float position, int channel){
+        int lower = (int)Math.floor(position);
+        float progress = position - lower;
+        int a = Math.min(Math.max(lower, 0), length - 1);
+        int b = Math.min(Math.max(lower + 1, 0), length - 1);
+        float valueA = source[(first + a * stride) * 4 + channel];
+        float valueB = source[(first + b * stride) * 4 + channel];
+        return valueA + (valueB - valueA) * progress;
+    }
+}
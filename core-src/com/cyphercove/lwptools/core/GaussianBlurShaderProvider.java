@@ -16,11 +16,22 @@
 
 package com.cyphercove.lwptools.core;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntMap;
 
+import java.nio.IntBuffer;
+
 /**
- * Create one of these per app to provide shaders for multiple GaussianBlur objects.
+ * Create one of these per app to provide shaders for multiple GaussianBlur objects. Shaders can be
+ * warmed up ahead of time with {@link #queueWarmUp(int...)} and {@link #updateWarmUp()}. Generated
+ * sources are kept, so a shader that is disposed and obtained again doesn't regenerate them.
+ * ShaderPrograms are managed by libGDX, so they are recompiled automatically after a context loss.
  * Created by Darren on 10/5/2015.
  */
 public class GaussianBlurShaderProvider {
@@ -33,105 +44,362 @@ public class GaussianBlurShaderProvider {
         }
     }
 
+    private static final int KAWASE_DOWNSAMPLE = 0;
+    private static final int KAWASE_UPSAMPLE = 1;
+
     private final IntMap<UniqueShader> blurPassShaderPrograms = new IntMap<UniqueShader>(5);
+    private final IntMap<UniqueShader> boxPassShaderPrograms = new IntMap<UniqueShader>(2);
+    private final IntMap<UniqueShader> kawaseShaderPrograms = new IntMap<UniqueShader>(2);
+    private final IntMap<GaussianKernelTable> kernelTables = new IntMap<GaussianKernelTable>(2);
+    private final IntMap<String[]> blurPassSources = new IntMap<String[]>(5);
+    private int maxVaryingVectors;
 
-    ShaderProgram obtainBlurPassShaderProgram(int maxRadius){
-        UniqueShader uniqueShader = blurPassShaderPrograms.get(maxRadius);
+    private final IntArray warmUpQueue = new IntArray();
+    private final Array<ShaderProgram> warmedUpShaderPrograms = new Array<ShaderProgram>();
+    private int warmUpTotal;
+
+    private static final String PASS_VERTEX_SHADER =
+            "attribute vec4 a_position;\n" +
+                    "attribute vec2 a_texCoord0;\n" +
+                    "\n" +
+                    "uniform mat4 u_projTrans;\n" +
+                    "\n" +
+                    "varying vec2 v_texCoords;\n" +
+                    "\n" +
+                    "void main()\n" +
+                    "{\n" +
+                    "v_texCoords = a_texCoord0;\n" +
+                    "gl_Position =  u_projTrans * a_position;\n" +
+                    "}";
+
+    private static final String FRAGMENT_SHADER_HEADER =
+            "#ifdef GL_ES\n" +
+                    "\t#define LOWP lowp\n" +
+                    "\tprecision mediump float;\n" +
+                    "#else\n" +
+                    "\t#define LOWP \n" +
+                    "#endif\n" +
+                    "\n" +
+                    "varying vec2 v_texCoords;\n" +
+                    "\n" +
+                    "uniform sampler2D u_texture;\n";
+
+    private static ShaderProgram obtainSharedShaderProgram(IntMap<UniqueShader> shaderPrograms, int key){
+        UniqueShader uniqueShader = shaderPrograms.get(key);
         if (uniqueShader != null){
             uniqueShader.refCount++;
             return uniqueShader.shaderProgram;
         }
+        return null;
+    }
+
+    private static ShaderProgram shareShaderProgram(IntMap<UniqueShader> shaderPrograms, int key,
+                                                    String vertexShaderSrc, String fragmentShaderSrc){
+        ShaderProgram shaderProgram = new ShaderProgram(vertexShaderSrc, fragmentShaderSrc);
+        shaderPrograms.put(key, new UniqueShader(shaderProgram));
+        return shaderProgram;
+    }
+
+    /**
+     * Generates a separable blur pass for any even max radius. Offsets and weights are passed as
+     * vec4 arrays holding one linearly sampled pair per component. Texture coordinates for as many
+     * pairs as the device's varyings allow are calculated in the vertex shader. Any remaining pairs
+     * are offset in the fragment shader, which costs dependent texture reads.
+     */
+    ShaderProgram obtainBlurPassShaderProgram(int maxRadius){
+        ShaderProgram sharedShaderProgram = obtainSharedShaderProgram(blurPassShaderPrograms, maxRadius);
+        if (sharedShaderProgram != null)
+            return sharedShaderProgram;
+
+        String[] sources = blurPassSources.get(maxRadius);
+        if (sources == null){
+            sources = generateBlurPassSources(maxRadius);
+            blurPassSources.put(maxRadius, sources);
+        }
+        return shareShaderProgram(blurPassShaderPrograms, maxRadius, sources[0], sources[1]);
+    }
 
-        String prefix = "#define RADIUS " + maxRadius + "\n";
+    /** @return The vertex and fragment shader sources. */
+    String[] generateBlurPassSources(int maxRadius){
+        int pairs = maxRadius / 2;
+        int varyingPairs = Math.min(pairs, (getMaxVaryingVectors() - 1) / 2);
+        String uniformDeclarations =
+                "uniform MEDP vec2 u_size;\n" +
+                "uniform MEDP vec4 u_offsets[" + getBlurPassVec4Count(maxRadius) + "];\n";
+        String varyingDeclaration = "varying vec2 v_texCoords[" + (1 + 2 * varyingPairs) + "];\n";
 
-        String vertexShaderSrc =
-                prefix +
-                        "attribute vec4 a_position;\n" +
-                        "attribute vec4 a_color;\n" +
-                        "attribute vec2 a_texCoord0;\n" +
-                        "\n" +
-                        "uniform mat4 u_projTrans;\n" +
+        StringBuilder vertexShaderSrc = new StringBuilder();
+        vertexShaderSrc.append(
+                "#ifdef GL_ES\n" +
+                "\t#define MEDP mediump\n" +
+                "#else\n" +
+                "\t#define MEDP \n" +
+                "#endif\n" +
+                "\n" +
+                "attribute vec4 a_position;\n" +
+                "attribute vec2 a_texCoord0;\n" +
+                "\n" +
+                "uniform mat4 u_projTrans;\n")
+                .append(uniformDeclarations)
+                .append("\n")
+                .append(varyingDeclaration)
+                .append("\n" +
+                "void main()\n" +
+                "{\n" +
+                "v_texCoords[0] = a_texCoord0.xy;\n");
+        for (int i = 0; i < varyingPairs; i++){
+            String offset = getVec4ArrayElement("u_offsets", i);
+            vertexShaderSrc.append("v_texCoords[").append(2 * i + 1).append("] = a_texCoord0.xy + u_size * ")
+                    .append(offset).append(";\n");
+            vertexShaderSrc.append("v_texCoords[").append(2 * i + 2).append("] = a_texCoord0.xy - u_size * ")
+                    .append(offset).append(";\n");
+        }
+        vertexShaderSrc.append(
+                "gl_Position =  u_projTrans * a_position;\n" +
+                "}");
+
+        StringBuilder fragmentShaderSrc = new StringBuilder();
+        fragmentShaderSrc.append(
+                "#ifdef GL_ES\n" +
+                "\t#define LOWP lowp\n" +
+                "\t#define MEDP mediump\n" +
+                "\tprecision mediump float;\n" +
+                "#else\n" +
+                "\t#define LOWP \n" +
+                "\t#define MEDP \n" +
+                "#endif\n" +
+                "\n")
+                .append(varyingDeclaration)
+                .append("\n" +
+                "uniform sampler2D u_texture;\n")
+                .append(uniformDeclarations)
+                .append(
+                "uniform float u_weightAtCenter;\n" +
+                "uniform vec4 u_weights[").append(getBlurPassVec4Count(maxRadius)).append("];\n" +
+                "\n" +
+                "void main()\n" +
+                "{\n" +
+                "vec4 blurSum = texture2D(u_texture, v_texCoords[0]) * u_weightAtCenter;\n");
+        if (varyingPairs < pairs)
+            fragmentShaderSrc.append("vec2 offset;\n");
+        for (int i = 0; i < pairs; i++){
+            String weight = getVec4ArrayElement("u_weights", i);
+            if (i < varyingPairs){
+                fragmentShaderSrc.append("blurSum += texture2D(u_texture, v_texCoords[").append(2 * i + 1)
+                        .append("]) * ").append(weight).append(";\n");
+                fragmentShaderSrc.append("blurSum += texture2D(u_texture, v_texCoords[").append(2 * i + 2)
+                        .append("]) * ").append(weight).append(";\n");
+            } else {
+                fragmentShaderSrc.append("offset = u_size * ").append(getVec4ArrayElement("u_offsets", i)).append(";\n");
+                fragmentShaderSrc.append("blurSum += texture2D(u_texture, v_texCoords[0] + offset) * ")
+                        .append(weight).append(";\n");
+                fragmentShaderSrc.append("blurSum += texture2D(u_texture, v_texCoords[0] - offset) * ")
+                        .append(weight).append(";\n");
+            }
+        }
+        fragmentShaderSrc.append(
+                "gl_FragColor = blurSum;\n" +
+                "}");
+
+        return new String[]{vertexShaderSrc.toString(), fragmentShaderSrc.toString()};
+    }
+
+    /** @return The length of the u_offsets and u_weights vec4 arrays of a blur pass shader. */
+    static int getBlurPassVec4Count(int maxRadius){
+        return Math.max(1, (maxRadius / 2 + 3) / 4);
+    }
+
+    private static String getVec4ArrayElement(String name, int index){
+        return name + "[" + (index / 4) + "]." + "xyzw".charAt(index % 4);
+    }
+
+    private int getMaxVaryingVectors(){
+        if (maxVaryingVectors == 0){
+            IntBuffer buffer = BufferUtils.newIntBuffer(16);
+            Gdx.gl20.glGetIntegerv(GL20.GL_MAX_VARYING_VECTORS, buffer);
+            //Desktop GL might not support the query. 8 is the minimum guaranteed by GL ES 2.0.
+            maxVaryingVectors = Math.max(8, buffer.get(0));
+        }
+        return maxVaryingVectors;
+    }
+
+    /**
+     * @param pairs The number of linearly sampled tap pairs on each side of the center. The box
+     *              covers {@code 2 * pairs} pixels on each side of the center at full spacing.
+     */
+    ShaderProgram obtainBoxPassShaderProgram(int pairs){
+        ShaderProgram sharedShaderProgram = obtainSharedShaderProgram(boxPassShaderPrograms, pairs);
+        if (sharedShaderProgram != null)
+            return sharedShaderProgram;
+
+        //Adjacent pixels of equal weight are sampled together at the point between them.
+        String fragmentShaderSrc =
+                "#define PAIRS " + pairs + "\n" +
+                        FRAGMENT_SHADER_HEADER +
                         "uniform vec2 u_size;\n" +
-                        "uniform vec4 u_offsets;\n" +
-                        "\n" +
-                        "varying vec2 v_texCoords[RADIUS+2];\n" +
-                        "\n" +
+                        "uniform float u_weightAtCenter;\n" +
+                        "uniform float u_pairWeight;\n" +
                         "\n" +
                         "void main()\n" +
                         "{\n" +
-                        "v_texCoords[0] = a_texCoord0.xy;\n" +
-                        "v_texCoords[1] = a_texCoord0.xy + u_size * u_offsets[0];\n" +
-                        "v_texCoords[2] = a_texCoord0.xy - u_size * u_offsets[0];\n" +
-                        "#if (RADIUS > 2)\n" +
-                        "v_texCoords[3] = a_texCoord0.xy + u_size * u_offsets[1];\n" +
-                        "v_texCoords[4] = a_texCoord0.xy - u_size * u_offsets[1];\n" +
-                        "#endif\n" +
-                        "#if (RADIUS > 4)\n" +
-                        "v_texCoords[5] = a_texCoord0.xy + u_size * u_offsets[2];\n" +
-                        "v_texCoords[6] = a_texCoord0.xy - u_size * u_offsets[2];\n" +
-                        "#endif\n" +
-                        "#if (RADIUS > 6)\n" +
-                        "v_texCoords[7] = a_texCoord0.xy + u_size * u_offsets[3];\n" +
-                        "v_texCoords[8] = a_texCoord0.xy - u_size * u_offsets[3];\n" +
-                        "#endif\n" +
-                        "gl_Position =  u_projTrans * a_position;\n" +
+                        "vec4 blurSum = texture2D(u_texture, v_texCoords) * u_weightAtCenter;\n" +
+                        "for (int i = 1; i <= PAIRS; i++){\n" +
+                        "\tvec2 offset = u_size * (float(i) * 2.0 - 0.5);\n" +
+                        "\tblurSum += texture2D(u_texture, v_texCoords + offset) * u_pairWeight;\n" +
+                        "\tblurSum += texture2D(u_texture, v_texCoords - offset) * u_pairWeight;\n" +
+                        "}\n" +
+                        "gl_FragColor = blurSum;\n" +
                         "}";
 
+        return shareShaderProgram(boxPassShaderPrograms, pairs, PASS_VERTEX_SHADER, fragmentShaderSrc);
+    }
+
+    /** Dual filter downsample, as described by Marius Bjorge in "Bandwidth-Efficient Rendering",
+     * SIGGRAPH 2015. */
+    ShaderProgram obtainKawaseDownsampleShaderProgram(){
+        ShaderProgram sharedShaderProgram = obtainSharedShaderProgram(kawaseShaderPrograms, KAWASE_DOWNSAMPLE);
+        if (sharedShaderProgram != null)
+            return sharedShaderProgram;
+
         String fragmentShaderSrc =
-                prefix +
-                        "#ifdef GL_ES\n" +
-                        "\t#define LOWP lowp\n" +
-                        "\tprecision mediump float;\n" +
-                        "#else\n" +
-                        "\t#define LOWP \n" +
-                        "#endif\n" +
-                        "\n" +
-                        "varying vec2 v_texCoords[RADIUS+2];\n" +
+                FRAGMENT_SHADER_HEADER +
+                        "uniform vec2 u_halfPixel;\n" +
+                        "uniform float u_offset;\n" +
                         "\n" +
-                        "uniform sampler2D u_texture;\n" +
-                        "uniform float u_weightAtCenter;\n" +
-                        "uniform vec4 u_weights;\n" +
+                        "void main()\n" +
+                        "{\n" +
+                        "vec2 offset = u_halfPixel * u_offset;\n" +
+                        "vec4 blurSum = texture2D(u_texture, v_texCoords) * 4.0;\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords - offset);\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + offset);\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + vec2(offset.x, -offset.y));\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords - vec2(offset.x, -offset.y));\n" +
+                        "gl_FragColor = blurSum * 0.125;\n" +
+                        "}";
+
+        return shareShaderProgram(kawaseShaderPrograms, KAWASE_DOWNSAMPLE, PASS_VERTEX_SHADER, fragmentShaderSrc);
+    }
+
+    /** Dual filter upsample, the counterpart of {@link #obtainKawaseDownsampleShaderProgram()}. */
+    ShaderProgram obtainKawaseUpsampleShaderProgram(){
+        ShaderProgram sharedShaderProgram = obtainSharedShaderProgram(kawaseShaderPrograms, KAWASE_UPSAMPLE);
+        if (sharedShaderProgram != null)
+            return sharedShaderProgram;
+
+        String fragmentShaderSrc =
+                FRAGMENT_SHADER_HEADER +
+                        "uniform vec2 u_halfPixel;\n" +
+                        "uniform float u_offset;\n" +
                         "\n" +
                         "void main()\n" +
                         "{\n" +
-                        "vec4 blurSum = texture2D(u_texture, v_texCoords[0]) * u_weightAtCenter;\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[1]) * u_weights[0];\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[2]) * u_weights[0];\n" +
-                        "#if (RADIUS > 2)\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[3]) * u_weights[1];\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[4]) * u_weights[1];\n" +
-                        "#endif\n" +
-                        "#if (RADIUS > 4)\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[5]) * u_weights[2];\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[6]) * u_weights[2];\n" +
-                        "#endif\n" +
-                        "#if (RADIUS > 6)\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[7]) * u_weights[3];\n" +
-                        "blurSum += texture2D(u_texture, v_texCoords[8]) * u_weights[3];\n" +
-                        "#endif\n" +
-                        "gl_FragColor = blurSum;\n" +
+                        "vec2 offset = u_halfPixel * u_offset;\n" +
+                        "vec4 blurSum = texture2D(u_texture, v_texCoords + vec2(-offset.x * 2.0, 0.0));\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + vec2(-offset.x, offset.y)) * 2.0;\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + vec2(0.0, offset.y * 2.0));\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + offset) * 2.0;\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + vec2(offset.x * 2.0, 0.0));\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + vec2(offset.x, -offset.y)) * 2.0;\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords + vec2(0.0, -offset.y * 2.0));\n" +
+                        "blurSum += texture2D(u_texture, v_texCoords - offset) * 2.0;\n" +
+                        "gl_FragColor = blurSum / 12.0;\n" +
                         "}";
 
-        ShaderProgram shaderProgram = new ShaderProgram(vertexShaderSrc, fragmentShaderSrc);
-        uniqueShader = new UniqueShader(shaderProgram);
-        blurPassShaderPrograms.put(maxRadius, uniqueShader);
-        return shaderProgram;
+        return shareShaderProgram(kawaseShaderPrograms, KAWASE_UPSAMPLE, PASS_VERTEX_SHADER, fragmentShaderSrc);
+    }
+
+    /**
+     * Queues blur pass shaders and kernel tables for the given max radii to be prepared by
+     * {@link #updateWarmUp()}, so constructing a GaussianBlur later doesn't stall on compiling
+     * them. Radii are rounded up to even numbers like they are by GaussianBlur.
+     */
+    public void queueWarmUp(int... maxRadii){
+        for (int maxRadius : maxRadii){
+            if (maxRadius < 0 || maxRadius > GaussianBlur.MAX_RADIUS){
+                throw new GdxRuntimeException(
+                        "Radius must be between 0 and " + GaussianBlur.MAX_RADIUS + " inclusive.");
+            }
+            if (maxRadius % 2 != 0)
+                maxRadius++;
+            if (maxRadius == 0 || warmUpQueue.contains(maxRadius))
+                continue;
+            warmUpQueue.add(maxRadius);
+            warmUpTotal++;
+        }
+    }
+
+    /**
+     * Prepares the next queued shader. Compiling must happen on the GL thread, so call this once
+     * per frame, for example while a loading screen is shown, to spread the work out.
+     * @return Whether all queued shaders are ready.
+     */
+    public boolean updateWarmUp(){
+        if (warmUpQueue.size == 0)
+            return true;
+        int maxRadius = warmUpQueue.removeIndex(0);
+        obtainKernelTable(maxRadius);
+        warmedUpShaderPrograms.add(obtainBlurPassShaderProgram(maxRadius));
+        return warmUpQueue.size == 0;
+    }
+
+    /** Prepares all queued shaders immediately. */
+    public void finishWarmUp(){
+        while (!updateWarmUp());
+    }
+
+    /** @return The fraction of queued shaders that are ready, from 0 to 1. */
+    public float getWarmUpProgress(){
+        if (warmUpTotal == 0)
+            return 1f;
+        return 1f - (float)warmUpQueue.size / warmUpTotal;
+    }
+
+    /**
+     * Releases the provider's hold on warmed up shaders, so they are disposed once no GaussianBlur
+     * is using them. Call when they are no longer needed, or before disposing the GaussianBlurs.
+     */
+    public void releaseWarmUp(){
+        for (ShaderProgram shaderProgram : warmedUpShaderPrograms)
+            disposeShader(shaderProgram);
+        warmedUpShaderPrograms.clear();
+        warmUpQueue.clear();
+        warmUpTotal = 0;
+    }
+
+    /** Kernel tables hold no GL resources, so they are kept for the life of the provider. */
+    GaussianKernelTable obtainKernelTable(int maxRadius){
+        GaussianKernelTable kernelTable = kernelTables.get(maxRadius);
+        if (kernelTable == null){
+            kernelTable = new GaussianKernelTable(maxRadius);
+            kernelTables.put(maxRadius, kernelTable);
+        }
+        return kernelTable;
     }
 
     boolean disposeShader(ShaderProgram shaderProgram){
         if (shaderProgram == null)
             return false;
 
-        for (IntMap.Entry<UniqueShader> entry : blurPassShaderPrograms.entries()){
-            UniqueShader uniqueShader = entry.value;
-            if (uniqueShader.shaderProgram == shaderProgram){
-                uniqueShader.refCount--;
-                if (uniqueShader.refCount < 1){
-                    shaderProgram.dispose();
-                    blurPassShaderPrograms.remove(entry.key);
-                    return true;
-                } else {
-                    return false;
+        IntMap<UniqueShader> shaderPrograms = null;
+        if (containsShaderProgram(blurPassShaderPrograms, shaderProgram))
+            shaderPrograms = blurPassShaderPrograms;
+        else if (containsShaderProgram(boxPassShaderPrograms, shaderProgram))
+            shaderPrograms = boxPassShaderPrograms;
+        else if (containsShaderProgram(kawaseShaderPrograms, shaderProgram))
+            shaderPrograms = kawaseShaderPrograms;
+
+        if (shaderPrograms != null){
+            for (IntMap.Entry<UniqueShader> entry : shaderPrograms.entries()){
+                UniqueShader uniqueShader = entry.value;
+                if (uniqueShader.shaderProgram == shaderProgram){
+                    uniqueShader.refCount--;
+                    if (uniqueShader.refCount < 1){
+                        shaderProgram.dispose();
+                        shaderPrograms.remove(entry.key);
+                        return true;
+                    } else {
+                        return false;
+                    }
                 }
             }
         }
@@ -140,4 +408,12 @@ public class GaussianBlurShaderProvider {
         shaderProgram.dispose();
         return true;
     }
+
+    private static boolean containsShaderProgram(IntMap<UniqueShader> shaderPrograms, ShaderProgram shaderProgram){
+        for (IntMap.Entry<UniqueShader> entry : shaderPrograms.entries()){
+            if (entry.value.shaderProgram == shaderProgram)
+                return true;
+        }
+        return false;
+    }
 }
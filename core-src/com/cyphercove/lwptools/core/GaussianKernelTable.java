@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Precalculated linearly sampled Gaussian kernels for one max radius, quantized by sigma. Kernels
+ * between entries are linearly interpolated, so changing the radius every frame costs only a few
+ * multiplies. Obtain shared instances from {@link GaussianBlurShaderProvider#obtainKernelTable(int)}.
+ * <p>
+ * Each kernel has a weight at the center, and a weight and offset for each linearly sampled pair of
+ * pixels on either side, as described here:
+ * http://rastergrid.com/blog/2010/09/efficient-gaussian-blur-with-linear-sampling/
+ */
+public class GaussianKernelTable {
+
+    /** The number of entries between a radius of zero and the max radius. */
+    public static final int STEPS_PER_MAX_RADIUS = 256;
+    /** Radii up to this multiple of the max radius are in the table. Larger ones are calculated. */
+    public static final int RANGE_IN_MAX_RADII = 2;
+
+    private final int maxRadius;
+    private final int pairs;
+    private final int stride;
+    private final float sigmaStep;
+    private final int entryCount;
+    private final float[] entries; //center weight, then pair weights, then pair offsets
+    private final float[] tmpArray;
+
+    GaussianKernelTable(int maxRadius){
+        this.maxRadius = maxRadius;
+        pairs = maxRadius / 2;
+        stride = 1 + 2 * pairs;
+        entryCount = STEPS_PER_MAX_RADIUS * RANGE_IN_MAX_RADII + 1;
+        sigmaStep = maxRadius / 3f / STEPS_PER_MAX_RADIUS;
+        entries = new float[entryCount * stride];
+
+        tmpArray = new float[maxRadius + 1];
+        float[] weights = new float[pairs];
+        float[] offsets = new float[pairs];
+        for (int i = 0; i < entryCount; i++){
+            //Entry 0 would be a zero sigma, where the kernel is just the center.
+            float sigma = Math.max(i * sigmaStep, GaussianBlur.MIN_SIGMA);
+            int start = i * stride;
+            entries[start] = calculateKernel(sigma, maxRadius, tmpArray, weights, offsets);
+            System.arraycopy(weights, 0, entries, start + 1, pairs);
+            System.arraycopy(offsets, 0, entries, start + 1 + pairs, pairs);
+        }
+    }
+
+    public int getMaxRadius() {
+        return maxRadius;
+    }
+
+    /**
+     * Looks up the kernel for the given sigma, interpolating between the nearest entries. Sigmas
+     * beyond the range of the table are calculated directly. Must be called from the GL thread,
+     * since the table is shared.
+     * @param weights Receives the weight of each pair. Must have at least {@code maxRadius / 2}
+     *                elements.
+     * @param offsets Receives the offset of each pair in pixels. Must have at least
+     *                {@code maxRadius / 2} elements.
+     * @return The weight at the center.
+     */
+    public float lookup(float sigma, float[] weights, float[] offsets){
+        float position = sigma / sigmaStep;
+        if (position >= entryCount - 1)
+            return calculateKernel(sigma, maxRadius, tmpArray, weights, offsets);
+
+        int index = (int)position;
+        float progress = position - index;
+        int a = index * stride;
+        int b = a + stride;
+        for (int i = 0; i < pairs; i++){
+            weights[i] = lerp(entries[a + 1 + i], entries[b + 1 + i], progress);
+            offsets[i] = lerp(entries[a + 1 + pairs + i], entries[b + 1 + pairs + i], progress);
+        }
+        return lerp(entries[a], entries[b], progress);
+    }
+
+    private static float lerp(float from, float to, float progress){
+        return from + (to - from) * progress;
+    }
+
+    /**
+     * Calculates a normalized kernel, with adjacent pixels combined into pairs.
+     * @param tmpArray Working space of at least {@code maxRadius + 1} elements.
+     * @return The weight at the center.
+     */
+    static float calculateKernel(float sigma, int maxRadius, float[] tmpArray, float[] weights, float[] offsets){
+        //Calculate standard weights
+        float twoSigmaSquared = 2*sigma*sigma;
+        float weightSum = 0;
+        for (int i=0; i <= maxRadius; i++){
+            tmpArray[i] = (1.0f / (MathUtils.PI * twoSigmaSquared)) *
+                    (float)Math.exp(-(double)(i*i) / (double)twoSigmaSquared);
+            weightSum += i==0 ? tmpArray[i] : 2*tmpArray[i];
+        }
+
+        //Normalize them to avoid darkening
+        for (int i=0; i <= maxRadius; i++){
+            tmpArray[i] /= weightSum;
+        }
+
+        //Fill into the optimized arrays
+        for (int i=0; i < maxRadius / 2; i++)
+        {
+            float left = tmpArray[i*2 + 1];
+            float right = tmpArray[i*2 + 2];
+            weights[i] = left + right;
+            if (weights[i] == 0) //underflow at small sigmas
+                offsets[i] = i*2 + 1.5f;
+            else
+                offsets[i] = (left * (i*2 + 1) + right * (i*2 + 2)) / weights[i];
+        }
+
+        //The first weight doesn't use the linear sampling optimization because it is at the center
+        return tmpArray[0];
+    }
+}
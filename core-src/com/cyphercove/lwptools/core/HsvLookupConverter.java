@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Table based alternative to the HSV conversions of {@link IntColor}, with the same signatures so
+ * callers can switch between them. Conversion to HSV replaces divisions with a table of reciprocals
+ * of 8 bit values, so it matches IntColor to within float rounding. Conversion from HSV looks up the
+ * fully saturated color of the nearest hue in a table, so its accuracy depends on the table size.
+ * Hues outside 0 to 360 wrap around, though negative hues may be off by one more step.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public class HsvLookupConverter {
+
+    public static final int DEFAULT_HUE_TABLE_SIZE = 4096;
+
+    private static final float[] RECIPROCALS = new float[256];
+
+    static {
+        for (int i = 1; i < 256; i++)
+            RECIPROCALS[i] = 1f / i;
+    }
+
+    private final int hueTableSize;
+    private final float hueToIndex;
+    /** Red, green, and blue of the fully saturated, full value color of each hue step. */
+    private final float[] hueTable;
+
+    public HsvLookupConverter(){
+        this(DEFAULT_HUE_TABLE_SIZE);
+    }
+
+    /**
+     * @param hueTableSize The number of hue steps, a power of two from 64 to 65536. The largest
+     *                     error in a color component is 3 / hueTableSize, such as 0.19 of an 8 bit
+     *                     step for the default size.
+     */
+    public HsvLookupConverter(int hueTableSize){
+        if (hueTableSize < 64 || hueTableSize > 65536 || (hueTableSize & (hueTableSize - 1)) != 0)
+            throw new GdxRuntimeException("Hue table size must be a power of two from 64 to 65536.");
+        this.hueTableSize = hueTableSize;
+        hueToIndex = hueTableSize / 360f;
+        hueTable = new float[hueTableSize * 3];
+        for (int i = 0; i < hueTableSize; i++)
+            ColorUtil.hsvToRGB(i * 360f / hueTableSize, 1f, 1f, hueTable, i * 3);
+    }
+
+    public int getHueTableSize() {
+        return hueTableSize;
+    }
+
+    /** @return The largest error in a color component from 0 to 1 when converting from HSV. */
+    public float getMaxComponentError(){
+        return 3f / hueTableSize;
+    }
+
+    /** @see IntColor#RGBToHSV(int, int, int, float[]) */
+    public void RGBToHSV(int r, int g, int b, float hsv[]) {
+        int max = Math.max(b, Math.max(r, g));
+        int min = Math.min(b, Math.min(r, g));
+        float h;
+        float s;
+        if (max == min) {
+            h = 0;
+            s = 0;
+        } else {
+            int chroma = max - min;
+            float inverseChroma = RECIPROCALS[chroma];
+            s = chroma * RECIPROCALS[max];
+            if (r == max) {
+                h = (g - b) * inverseChroma;
+                if (h < 0)
+                    h += 6;
+            } else if (g == max) {
+                h = 2 + (b - r) * inverseChroma;
+            } else {
+                h = 4 + (r - g) * inverseChroma;
+            }
+            h *= 60f;
+        }
+        hsv[0] = h;
+        hsv[1] = s;
+        hsv[2] = max * RECIPROCALS[255];
+    }
+
+    /** @see IntColor#colorToHSV(int, float[]) */
+    public void colorToHSV(int color, float hsv[]) {
+        RGBToHSV((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF, hsv);
+    }
+
+    /** @see IntColor#HSVToColor(float[]) */
+    public int HSVToColor(float hsv[]) {
+        return HSVToColor(0xFF, hsv[0], hsv[1], hsv[2]);
+    }
+
+    /** @see IntColor#HSVToColor(int, float[]) */
+    public int HSVToColor(int alpha, float hsv[]) {
+        return HSVToColor(alpha, hsv[0], hsv[1], hsv[2]);
+    }
+
+    /** @see IntColor#HSVToColor(int, float, float, float) */
+    public int HSVToColor(int alpha, float hue, float saturation, float value) {
+        int i = ((int)(hue * hueToIndex + 0.5f) & (hueTableSize - 1)) * 3;
+        //Each component is value * (1 - saturation * (1 - saturated component)).
+        float gray = 255 * value * (1 - saturation);
+        float scale = 255 * value * saturation;
+        return IntColor.argb(alpha,
+                (int)(gray + scale * hueTable[i]),
+                (int)(gray + scale * hueTable[i + 1]),
+                (int)(gray + scale * hueTable[i + 2]));
+    }
+}
@@ -20,9 +20,6 @@
 
 package com.cyphercove.lwptools.core;
 
-import java.util.HashMap;
-import java.util.Locale;
-
 /**
  * The IntColor class defines methods for creating and converting color ints.
  * Colors are represented as packed ints, made up of 4 bytes: alpha, red,
@@ -217,27 +214,81 @@ public class IntColor {
      * Parse the color string, and return the corresponding color-int.
      * If the string cannot be parsed, throws an IllegalArgumentException
      * exception. Supported formats are:
+     * #RGB
      * #RRGGBB
      * #AARRGGBB
+     * 0xRRGGBB
+     * 0xAARRGGBB
      * 'red', 'blue', 'green', 'black', 'white', 'gray', 'cyan', 'magenta',
-     * 'yellow', 'lightgray', 'darkgray'
+     * 'yellow', 'lightgray', 'darkgray', in any case
      */
     public static int parseColor(String colorString) {
-        if (colorString.charAt(0) == '#') {
-            // Use a long to avoid rollovers on #ffXXXXXX
-            long color = Long.parseLong(colorString.substring(1), 16);
-            if (colorString.length() == 7) {
-                // Set the alpha value
-                color |= 0x00000000ff000000;
-            } else if (colorString.length() != 9) {
-                throw new IllegalArgumentException("Unknown color");
-            }
-            return (int)color;
-        } else {
-            Integer color = sColorNameMap.get(colorString.toLowerCase(Locale.US));
-            if (color != null) {
-                return color;
+        return parseColor(colorString, 0, colorString.length());
+    }
+
+    /**
+     * Parse the color from the characters between start inclusive and end
+     * exclusive, without allocating.
+     * @see #parseColor(String)
+     */
+    public static int parseColor(CharSequence colorString, int start, int end) {
+        if (end > start && colorString.charAt(start) == '#') {
+            return parseHexDigits(colorString, start + 1, end, true);
+        }
+        if (hasHexPrefix(colorString, start, end)) {
+            return parseHexDigits(colorString, start + 2, end, true);
+        }
+        int index = colorNameIndex(colorString, start, end);
+        if (index >= 0) {
+            return sColorNameValues[index];
+        }
+        throw new IllegalArgumentException("Unknown color");
+    }
+
+    /**
+     * Parse AARRGGBB or RRGGBB hex digits, optionally preceded by 0x, from
+     * the characters between start inclusive and end exclusive. RRGGBB is
+     * opaque. If the characters cannot be parsed, throws an
+     * IllegalArgumentException.
+     */
+    public static int parseHex(CharSequence hexString, int start, int end) {
+        if (hasHexPrefix(hexString, start, end)) {
+            start += 2;
+        }
+        return parseHexDigits(hexString, start, end, false);
+    }
+
+    private static boolean hasHexPrefix(CharSequence s, int start, int end) {
+        return end - start > 2 && s.charAt(start) == '0' && (s.charAt(start + 1) | 0x20) == 'x';
+    }
+
+    private static int parseHexDigits(CharSequence s, int start, int end, boolean allowShort) {
+        int length = end - start;
+        if (length == 3 && allowShort) {
+            int color = 0xff;
+            for (int i = start; i < end; i++) {
+                int digit = hexDigit(s.charAt(i));
+                color = (color << 8) | (digit << 4) | digit;
             }
+            return color;
+        }
+        if (length != 6 && length != 8) {
+            throw new IllegalArgumentException("Unknown color");
+        }
+        int color = length == 6 ? 0xff : 0;
+        for (int i = start; i < end; i++) {
+            color = (color << 4) | hexDigit(s.charAt(i));
+        }
+        return color;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        c |= 0x20; // lower case
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
         }
         throw new IllegalArgumentException("Unknown color");
     }
@@ -341,7 +392,10 @@ public class IntColor {
         if (hsv.length < 3) {
             throw new RuntimeException("3 components required for hsv");
         }
-        
+        RGBToHSV(r, g, b, hsv, 0);
+    }
+
+    private static void RGBToHSV(int r, int g, int b, float hsv[], int offset) {
         int V = Math.max(b, Math.max(r, g));
         int temp = Math.min(b, Math.min(r, g));
 
@@ -369,9 +423,9 @@ public class IntColor {
             }
         }
 
-        hsv[0] = H;
-        hsv[1] = S;
-        hsv[2] = (float)V/255;
+        hsv[offset] = H;
+        hsv[offset + 1] = S;
+        hsv[offset + 2] = (float)V/255;
     }
 
     /**
@@ -414,9 +468,18 @@ public class IntColor {
         if (hsv.length < 3) {
             throw new RuntimeException("3 components required for hsv");
         }
-        float C = hsv[1] * hsv[2];
+        return HSVToColor(alpha, hsv[0], hsv[1], hsv[2]);
+    }
+
+    /**
+     * Convert HSV components to an ARGB color. The alpha component is passed
+     * through unchanged.
+     * @see #HSVToColor(int, float[])
+     */
+    public static int HSVToColor(int alpha, float hue, float saturation, float value) {
+        float C = saturation * value;
         float r,g,b;
-        float Hprime = hsv[0]/60;
+        float Hprime = hue/60;
         float X = C * (1 - Math.abs(Hprime%2 - 1));
         if (Hprime<1){
     		r = C;
@@ -448,7 +511,7 @@ public class IntColor {
     		b = 0;
     	}
         
-        float m = hsv[2] - C;
+        float m = value - C;
         r = 255*(r+m);
         g = 255*(g+m);
         b = 255*(b+m);
@@ -456,21 +519,85 @@ public class IntColor {
         return argb(alpha, (int)r, (int)g, (int)b);
     }
 
+    /**
+     * Convert a range of argb colors to HSV components, three per color.
+     * @see #colorToHSV(int, float[])
+     */
+    public static void colorsToHSV(int colors[], int offset, float hsv[], int hsvOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            int color = colors[offset + i];
+            RGBToHSV((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF, hsv, hsvOffset + i * 3);
+        }
+    }
+
+    /**
+     * Convert a range of HSV components, three per color, to ARGB colors with the given alpha.
+     * @see #HSVToColor(int, float[])
+     */
+    public static void HSVToColors(int alpha, float hsv[], int hsvOffset, int colors[], int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            int h = hsvOffset + i * 3;
+            colors[offset + i] = HSVToColor(alpha, hsv[h], hsv[h + 1], hsv[h + 2]);
+        }
+    }
 
-    private static final HashMap<String, Integer> sColorNameMap;
+
+    /*
+     * Color names are looked up in a perfect hash table. The hash of a name
+     * is taken from its first and last characters in lower case and its
+     * length, so no two names share a slot. Slots without a name are null.
+     */
+    private static final int COLOR_NAME_HASH_MULTIPLIER = 0xf519f70a;
+    private static final String[] sColorNames = new String[16];
+    private static final int[] sColorNameValues = new int[16];
 
     static {
-        sColorNameMap = new HashMap<String, Integer>();
-        sColorNameMap.put("black", BLACK);
-        sColorNameMap.put("darkgray", DKGRAY);
-        sColorNameMap.put("gray", GRAY);
-        sColorNameMap.put("lightgray", LTGRAY);
-        sColorNameMap.put("white", WHITE);
-        sColorNameMap.put("red", RED);
-        sColorNameMap.put("green", GREEN);
-        sColorNameMap.put("blue", BLUE);
-        sColorNameMap.put("yellow", YELLOW);
-        sColorNameMap.put("cyan", CYAN);
-        sColorNameMap.put("magenta", MAGENTA);
+        putColorName("black", BLACK);
+        putColorName("darkgray", DKGRAY);
+        putColorName("gray", GRAY);
+        putColorName("lightgray", LTGRAY);
+        putColorName("white", WHITE);
+        putColorName("red", RED);
+        putColorName("green", GREEN);
+        putColorName("blue", BLUE);
+        putColorName("yellow", YELLOW);
+        putColorName("cyan", CYAN);
+        putColorName("magenta", MAGENTA);
+    }
+
+    private static void putColorName(String name, int color) {
+        int slot = colorNameHash(name, 0, name.length());
+        if (sColorNames[slot] != null) {
+            throw new IllegalStateException("Color name hash collision: " + name);
+        }
+        sColorNames[slot] = name;
+        sColorNameValues[slot] = color;
+    }
+
+    private static int colorNameHash(CharSequence s, int start, int end) {
+        int key = (lowerCase(s.charAt(start)) << 16) | (lowerCase(s.charAt(end - 1)) << 8) | (end - start);
+        return (key * COLOR_NAME_HASH_MULTIPLIER) >>> 28;
+    }
+
+    /** @return The slot of the color name, or -1 if it isn't a known name. */
+    private static int colorNameIndex(CharSequence s, int start, int end) {
+        if (end - start < 3) {
+            return -1;
+        }
+        int slot = colorNameHash(s, start, end);
+        String name = sColorNames[slot];
+        if (name == null || name.length() != end - start) {
+            return -1;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (lowerCase(s.charAt(start + i)) != name.charAt(i)) {
+                return -1;
+            }
+        }
+        return slot;
+    }
+
+    private static char lowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
     }
 }
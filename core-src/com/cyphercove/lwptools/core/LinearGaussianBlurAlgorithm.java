@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Separable two pass Gaussian blur that uses linear filtering to sample two pixels per texture
+ * fetch. This is the default algorithm of {@link GaussianBlur}. It can optionally downsample the
+ * input first to reach larger radii at the same cost.
+ */
+public class LinearGaussianBlurAlgorithm implements AmortizableBlurAlgorithm {
+
+    public static final int MAX_PYRAMID_LEVELS = 3; //Downsampling to 1/2, 1/4, and 1/8 size.
+    private int maxRadius;
+    private int pyramidLevels = 0;
+    private int blurLevel = 0; //The pyramid level the blur passes are currently done at.
+
+    private final GaussianBlurShaderProvider shaderProvider;
+    private ShaderProgram blurPassShaderProgram;
+    private GaussianKernelTable kernelTable;
+    private FrameBuffer fboPass1; //held between stages
+    private FrameBuffer fboOutput;
+    private int stageLevel; //the blur level of the stages in progress
+    private boolean firstPassRotated;
+    private int width = -1;
+    private int height = -1;
+
+    private final float[] offsets; //padded to fill whole vec4s
+    private float weightAtCenter;
+    private final float[] weights;
+    private float sigma = -1;
+
+    /**
+     * @param initialAndMaxRadius The maximum blur radius this instance can support without
+     *                  downsampling. The initial radius is set to this value. The actual maximum
+     *                  blur radius will be rounded up to the nearest even integer due to internal
+     *                  workings.
+     */
+    public LinearGaussianBlurAlgorithm(float initialAndMaxRadius, GaussianBlurShaderProvider shaderProvider){
+        if (initialAndMaxRadius < 0 || initialAndMaxRadius > GaussianBlur.MAX_RADIUS){
+            throw new GdxRuntimeException(
+                    "Radius must be between 0 and " + GaussianBlur.MAX_RADIUS + " inclusive.");
+        }
+
+        this.maxRadius = (int)Math.ceil(initialAndMaxRadius);
+        if (this.maxRadius % 2 != 0)
+            this.maxRadius++; //round up to nearest even integer.
+        offsets = new float[4 * GaussianBlurShaderProvider.getBlurPassVec4Count(this.maxRadius)];
+        weights = new float[4 * GaussianBlurShaderProvider.getBlurPassVec4Count(this.maxRadius)];
+
+        this.shaderProvider = shaderProvider;
+        if (initialAndMaxRadius > 0) {
+            kernelTable = shaderProvider.obtainKernelTable(this.maxRadius);
+            blurPassShaderProgram = shaderProvider.obtainBlurPassShaderProgram(this.maxRadius);
+        }
+        setRadius(initialAndMaxRadius);
+    }
+
+    @Override
+    public void dispose() {
+        shaderProvider.disposeShader(blurPassShaderProgram);
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void freeFrameBuffers(BlurPassRenderer renderer) {
+        renderer.freeFrameBuffer(fboPass1);
+        fboPass1 = null;
+        renderer.freeFrameBuffer(fboOutput);
+        fboOutput = null;
+    }
+
+    @Override
+    public int getMaxRadius() {
+        return maxRadius;
+    }
+
+    public int getPyramidLevels() {
+        return pyramidLevels;
+    }
+
+    /**
+     * Enables blurring at a downsampled size when the radius is too large to blur at full size. The
+     * initial target is successively downsampled to 1/2, 1/4, and 1/8 size as needed, and the blur
+     * passes are done at the first level where the radius fits within the max radius. The result
+     * is upsampled by linear filtering when it is drawn into the scene. This allows radii up to
+     * {@code maxRadius * 2^levels} at about the same fill rate cost as the max radius at full size.
+     * @param levels The number of downsample levels that may be used, from 0 (disabled) to
+     *               {@link #MAX_PYRAMID_LEVELS}.
+     */
+    public void setPyramidLevels(int levels){
+        if (levels < 0 || levels > MAX_PYRAMID_LEVELS){
+            throw new GdxRuntimeException(
+                    "Pyramid levels must be between 0 and " + MAX_PYRAMID_LEVELS + " inclusive.");
+        }
+        if (pyramidLevels == levels)
+            return;
+
+        pyramidLevels = levels;
+        float sigma = this.sigma;
+        this.sigma = -1; //force recalculation for the new level
+        setSigma(sigma);
+    }
+
+    /**
+     * Set the blur radius. It can be set higher than the max radius, but clipping will be visible
+     * if it exceeds it by more than ~15%. If pyramid levels are enabled, the radius can be up to
+     * {@code maxRadius * 2^pyramidLevels} before clipping occurs.
+     * @param radius
+     */
+    @Override
+    public void setRadius (float radius){
+        setSigma(radius / 3f);
+    }
+
+    @Override
+    public float getRadius (){
+        return 3f * sigma;
+    }
+
+    /** Prepare to use linear filtering to sample two points by controlling offsets. The kernel comes
+     * from a table shared through the shader provider, so this is cheap enough to animate.*/
+    private void setSigma(float sigma){
+
+        if (this.sigma != sigma){
+            this.sigma = sigma;
+
+            if (sigma < GaussianBlur.MIN_SIGMA)
+                return;
+
+            if (maxRadius == 0)
+                return;
+
+            //Use the first pyramid level where the radius fits. The sigma scales with the level size.
+            blurLevel = 0;
+            while (blurLevel < pyramidLevels && 3f * sigma / (1 << blurLevel) > maxRadius)
+                blurLevel++;
+            sigma /= 1 << blurLevel;
+
+            weightAtCenter = kernelTable.lookup(sigma, weights, offsets);
+
+        }
+    }
+
+    @Override
+    public boolean shouldBlur(){
+        return maxRadius != 0 && sigma > GaussianBlur.MIN_SIGMA;
+    }
+
+    @Override
+    public void blur(BlurPassRenderer renderer) {
+        blurStage(renderer, 0);
+        blurStage(renderer, 1);
+    }
+
+    /** The first stage downsamples if necessary and does the first pass. The second does the
+     * output pass. */
+    @Override
+    public int getStageCount() {
+        return 2;
+    }
+
+    @Override
+    public void blurStage(BlurPassRenderer renderer, int stage) {
+        if (stage == 0)
+            blurFirstPass(renderer);
+        else
+            blurOutputPass(renderer);
+    }
+
+    private void blurFirstPass(BlurPassRenderer renderer){
+        renderer.freeFrameBuffer(fboPass1);
+        Texture source = renderer.getInput();
+        FrameBuffer sourceBuffer = null;
+        stageLevel = blurLevel;
+
+        //Margins cover the reach of the blur passes at the blur level, plus linear filtering.
+        //Downsample using linear filtering. Each halving averages 2x2 pixels.
+        for (int level = 1; level <= stageLevel; level++){
+            FrameBuffer destination = renderer.obtainFrameBuffer(
+                    Math.max(1, width >> level), Math.max(1, height >> level));
+            renderer.beginPass(destination, source, null, (maxRadius + 2) << (stageLevel - level));
+            renderer.endPass();
+            renderer.freeFrameBuffer(sourceBuffer);
+            sourceBuffer = destination;
+            source = destination.getColorBufferTexture();
+        }
+
+        //If the first pass rotates, its blur direction along x is vertical in the output, so the
+        //second pass must also blur along x.
+        firstPassRotated = source == renderer.getInput() && renderer.isInputRotated();
+        fboPass1 = renderer.obtainFrameBuffer(Math.max(1, width >> stageLevel), Math.max(1, height >> stageLevel));
+        renderer.beginPass(fboPass1, source, blurPassShaderProgram, maxRadius + 2);
+        applyBlurPassUniforms(source, true);
+        renderer.endPass();
+        renderer.freeFrameBuffer(sourceBuffer);
+    }
+
+    private void blurOutputPass(BlurPassRenderer renderer){
+        renderer.freeFrameBuffer(fboOutput);
+        Texture source = fboPass1.getColorBufferTexture();
+        fboOutput = renderer.obtainOutputFrameBuffer(source.getWidth(), source.getHeight());
+        renderer.beginOutputPass(fboOutput, source, blurPassShaderProgram, 1);
+        applyBlurPassUniforms(source, firstPassRotated);
+        renderer.endPass();
+        renderer.freeFrameBuffer(fboPass1);
+        fboPass1 = null;
+    }
+
+    private void applyBlurPassUniforms(Texture source, boolean alongX){
+        //Pixel size is in terms of the source texture, which might be rotated relative to the output.
+        if (alongX) {
+            blurPassShaderProgram.setUniformf("u_size", 1f / source.getWidth(), 0);
+        } else {
+            blurPassShaderProgram.setUniformf("u_size", 0, 1f / source.getHeight());
+        }
+        blurPassShaderProgram.setUniform4fv("u_offsets", offsets, 0, offsets.length);
+        blurPassShaderProgram.setUniformf("u_weightAtCenter", weightAtCenter);
+        blurPassShaderProgram.setUniform4fv("u_weights", weights, 0, weights.length);
+    }
+
+    @Override
+    public Texture getOutput() {
+        return fboOutput == null ? null : fboOutput.getColorBufferTexture();
+    }
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Produces a chain of progressively blurred levels in one pipeline, for depth of field with several
+ * layers. Level 0 is full size and blurred by the radius. Each following level is half the size of
+ * the previous one and has double its blur radius. Every level is blurred with the same small
+ * kernel, since the blur of the previous level carries over.
+ * <p>
+ * {@link #getOutput()} returns the level chosen with {@link #setOutputLevel(int)}, so layers can be
+ * drawn with different blur amounts by changing the level between calls to
+ * {@link GaussianBlur#render()}. For blur amounts between levels, or per pixel amounts from a
+ * circle of confusion texture, a custom composite shader can sample adjacent levels. Bind them
+ * with {@link #bindLevels(ShaderProgram, String, int)} from a
+ * {@link GaussianBlur.CustomShaderPreparer}.
+ */
+public class MipChainBlurAlgorithm implements BlurAlgorithm {
+
+    public static final int MAX_LEVELS = 6;
+    /** Variance in pixels of a level that is added by linearly filtering the previous level to
+     * half size. */
+    private static final float DOWNSAMPLE_VARIANCE = 0.0625f;
+
+    private final int levelCount;
+    private final int maxRadius;
+    private int outputLevel = 0;
+    private float radius = -1;
+    private float weightAtCenter;
+    private final float[] weights;
+    private final float[] offsets;
+    private float levelWeightAtCenter;
+    private final float[] levelWeights;
+    private final float[] levelOffsets;
+
+    private final GaussianBlurShaderProvider shaderProvider;
+    private final ShaderProgram blurPassShaderProgram;
+    private final GaussianKernelTable kernelTable;
+    private final FrameBuffer[] fboLevels = new FrameBuffer[MAX_LEVELS];
+    /** Scissor margin of each level's passes, in pixels of that level. */
+    private final int[] levelMargins = new int[MAX_LEVELS];
+    private String levelUniformPrefix;
+    private final String[] levelUniformNames = new String[MAX_LEVELS];
+    private int width;
+    private int height;
+
+    /**
+     * @param levelCount The number of levels in the chain, from 1 to {@link #MAX_LEVELS}.
+     * @param maxRadius The max radius of level 0, from 2 to {@link GaussianBlur#MAX_RADIUS}. It is
+     *                  rounded up to an even number.
+     */
+    public MipChainBlurAlgorithm(int levelCount, int maxRadius, float initialRadius, GaussianBlurShaderProvider shaderProvider){
+        if (levelCount < 1 || levelCount > MAX_LEVELS){
+            throw new GdxRuntimeException(
+                    "Level count must be between 1 and " + MAX_LEVELS + " inclusive.");
+        }
+        if (maxRadius < 2 || maxRadius > GaussianBlur.MAX_RADIUS){
+            throw new GdxRuntimeException(
+                    "Radius must be between 2 and " + GaussianBlur.MAX_RADIUS + " inclusive.");
+        }
+        if (maxRadius % 2 != 0)
+            maxRadius++;
+        this.levelCount = levelCount;
+        this.maxRadius = maxRadius;
+        int arrayLength = 4 * GaussianBlurShaderProvider.getBlurPassVec4Count(maxRadius);
+        weights = new float[arrayLength];
+        offsets = new float[arrayLength];
+        levelWeights = new float[arrayLength];
+        levelOffsets = new float[arrayLength];
+
+        //A level's passes reach maxRadius of its own pixels, plus two for linear filtering of
+        //the level before it. The margin of a level covers its own reach and the reach of every
+        //level derived from it, each scaled up by how much smaller that level is.
+        int levelReach = maxRadius + 2;
+        levelMargins[levelCount - 1] = levelReach;
+        for (int level = levelCount - 2; level >= 0; level--)
+            levelMargins[level] = levelReach + 2 * levelMargins[level + 1];
+
+        this.shaderProvider = shaderProvider;
+        blurPassShaderProgram = shaderProvider.obtainBlurPassShaderProgram(maxRadius);
+        kernelTable = shaderProvider.obtainKernelTable(maxRadius);
+        setRadius(initialRadius);
+    }
+
+    @Override
+    public void dispose() {
+        shaderProvider.disposeShader(blurPassShaderProgram);
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void freeFrameBuffers(BlurPassRenderer renderer) {
+        for (int level = 0; level < levelCount; level++){
+            renderer.freeFrameBuffer(fboLevels[level]);
+            fboLevels[level] = null;
+        }
+    }
+
+    /** @return The max radius of the last level. */
+    @Override
+    public int getMaxRadius() {
+        return maxRadius << (levelCount - 1);
+    }
+
+    /** Sets the blur radius of level 0. Each following level doubles it. */
+    @Override
+    public void setRadius(float radius) {
+        if (this.radius == radius)
+            return;
+        this.radius = radius;
+        float sigma = radius / 3f;
+        if (sigma < GaussianBlur.MIN_SIGMA)
+            return;
+        weightAtCenter = kernelTable.lookup(sigma, weights, offsets);
+
+        //Each level's variance is four times the previous level's in full size pixels, which is the
+        //same as the previous level's in its own pixels. The kernel adds the difference.
+        float levelVariance = 0.75f * sigma * sigma - DOWNSAMPLE_VARIANCE;
+        float levelSigma = (float)Math.sqrt(Math.max(levelVariance, 0f));
+        levelWeightAtCenter = kernelTable.lookup(Math.max(levelSigma, GaussianBlur.MIN_SIGMA),
+                levelWeights, levelOffsets);
+    }
+
+    @Override
+    public float getRadius() {
+        return radius;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /** @return The blur radius of a level, in pixels of the initial target. */
+    public float getLevelRadius(int level){
+        return radius * (1 << level);
+    }
+
+    /**
+     * @return The fractional level with the given blur radius, clamped to the chain. For example,
+     * 1.5 means halfway between levels 1 and 2. Negative results mean less blur than level 0.
+     */
+    public float getLevelForRadius(float radius){
+        if (radius <= 0)
+            return -1;
+        float level = (float)(Math.log(radius / this.radius) / Math.log(2));
+        return Math.max(-1, Math.min(level, levelCount - 1));
+    }
+
+    /** Sets which level {@link #getOutput()} returns, and therefore which one GaussianBlur draws. */
+    public void setOutputLevel(int outputLevel) {
+        if (outputLevel < 0 || outputLevel >= levelCount){
+            throw new GdxRuntimeException(
+                    "Output level must be between 0 and " + (levelCount - 1) + " inclusive.");
+        }
+        this.outputLevel = outputLevel;
+    }
+
+    public int getOutputLevel() {
+        return outputLevel;
+    }
+
+    @Override
+    public boolean shouldBlur() {
+        return radius / 3f > GaussianBlur.MIN_SIGMA;
+    }
+
+    @Override
+    public void blur(BlurPassRenderer renderer) {
+        freeFrameBuffers(renderer);
+        Texture source = renderer.getInput();
+        boolean rotated = renderer.isInputRotated();
+
+        for (int level = 0; level < levelCount; level++){
+            int levelWidth = Math.max(1, width >> level);
+            int levelHeight = Math.max(1, height >> level);
+            int margin = levelMargins[level];
+
+            //The first pass of each level after 0 also halves the size. Offsets are in pixels of
+            //the destination.
+            FrameBuffer fboPass1 = renderer.obtainFrameBuffer(levelWidth, levelHeight);
+            renderer.beginPass(fboPass1, source, blurPassShaderProgram, margin);
+            applyUniforms(level, level == 0 ? 1f / source.getWidth() : 1f / levelWidth, 0);
+            renderer.endPass();
+
+            //If the input is rotated, the first pass of level 0 blurs along the output's y, so the
+            //second pass must blur along x.
+            source = fboPass1.getColorBufferTexture();
+            fboLevels[level] = renderer.obtainFrameBuffer(levelWidth, levelHeight);
+            renderer.beginOutputPass(fboLevels[level], source, blurPassShaderProgram, margin);
+            if (level == 0 && rotated)
+                applyUniforms(level, 1f / source.getWidth(), 0);
+            else
+                applyUniforms(level, 0, 1f / source.getHeight());
+            renderer.endPass();
+            renderer.freeFrameBuffer(fboPass1);
+            source = fboLevels[level].getColorBufferTexture();
+        }
+
+        if (renderer.isOutputToScene()){
+            //Draw the chosen level into the scene as it is.
+            renderer.beginOutputPass(null, fboLevels[outputLevel].getColorBufferTexture(), null);
+            renderer.endPass();
+        }
+    }
+
+    private void applyUniforms(int level, float sizeX, float sizeY){
+        blurPassShaderProgram.setUniformf("u_size", sizeX, sizeY);
+        if (level == 0){
+            blurPassShaderProgram.setUniform4fv("u_offsets", offsets, 0, offsets.length);
+            blurPassShaderProgram.setUniformf("u_weightAtCenter", weightAtCenter);
+            blurPassShaderProgram.setUniform4fv("u_weights", weights, 0, weights.length);
+        } else {
+            blurPassShaderProgram.setUniform4fv("u_offsets", levelOffsets, 0, levelOffsets.length);
+            blurPassShaderProgram.setUniformf("u_weightAtCenter", levelWeightAtCenter);
+            blurPassShaderProgram.setUniform4fv("u_weights", levelWeights, 0, levelWeights.length);
+        }
+    }
+
+    @Override
+    public Texture getOutput() {
+        FrameBuffer frameBuffer = fboLevels[outputLevel];
+        return frameBuffer == null ? null : frameBuffer.getColorBufferTexture();
+    }
+
+    /** @return The texture of a level from the most recent blur, or null if there isn't one. */
+    public Texture getLevelTexture(int level){
+        FrameBuffer frameBuffer = fboLevels[level];
+        return frameBuffer == null ? null : frameBuffer.getColorBufferTexture();
+    }
+
+    /**
+     * Binds every level to consecutive texture units and sets sampler uniforms named with the
+     * prefix and the level number, such as {@code u_level0}. The levels are upright in the same
+     * orientation as {@link #getOutput()}, so they can all be sampled with the texture coordinates
+     * GaussianBlur draws with. Leaves texture unit 0 active. The shader must already be bound. The
+     * uniform names are cached for the most recent prefix.
+     * @param firstUnit The texture unit for level 0. Must be at least 1, since SpriteBatch uses 0.
+     */
+    public void bindLevels(ShaderProgram shader, String uniformPrefix, int firstUnit){
+        if (!uniformPrefix.equals(levelUniformPrefix)){
+            levelUniformPrefix = uniformPrefix;
+            for (int level = 0; level < levelCount; level++)
+                levelUniformNames[level] = uniformPrefix + level;
+        }
+        for (int level = 0; level < levelCount; level++){
+            Texture texture = getLevelTexture(level);
+            if (texture == null)
+                continue;
+            texture.bind(firstUnit + level);
+            shader.setUniformi(levelUniformNames[level], firstUnit + level);
+        }
+        Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+    }
+}
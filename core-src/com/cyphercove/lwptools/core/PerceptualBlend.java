@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * Blends colors in linear light or in the OKLab perceptual color space, rather than in gamma encoded
+ * sRGB like {@link ColorUtil#blend(Color, Color, float)}. Blending in linear light avoids the dark
+ * band between bright colors. Blending in OKLab also keeps lightness and saturation even across the
+ * blend, which {@link ColorUtil#blendAndroidIntsPreservingLerpedSaturation(int, int, float)}
+ * approximates with HSV conversions.
+ * <p>
+ * sRGB is decoded with a table of the 256 8 bit values and encoded with an interpolated table, so
+ * neither direction calls pow(). Alpha is blended linearly. Results outside the sRGB gamut are
+ * clamped. All methods can be used from any thread.
+ */
+public final class PerceptualBlend {
+
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+    private static final int LINEAR_TO_SRGB_STEPS = 4096;
+    private static final float[] LINEAR_TO_SRGB = new float[LINEAR_TO_SRGB_STEPS + 1];
+
+    static {
+        for (int i = 0; i < 256; i++){
+            float c = i / 255f;
+            SRGB_TO_LINEAR[i] = c <= 0.04045f ? c / 12.92f : (float)Math.pow((c + 0.055f) / 1.055f, 2.4f);
+        }
+        for (int i = 0; i <= LINEAR_TO_SRGB_STEPS; i++){
+            float c = (float)i / LINEAR_TO_SRGB_STEPS;
+            LINEAR_TO_SRGB[i] = c <= 0.0031308f ? c * 12.92f : 1.055f * (float)Math.pow(c, 1 / 2.4f) - 0.055f;
+        }
+    }
+
+    private static final ThreadLocal<float[]> rgbScratch = new ThreadLocal<float[]>(){
+        @Override
+        protected float[] initialValue() {
+            return new float[3];
+        }
+    };
+
+    private PerceptualBlend(){
+    }
+
+    /** @return The linear light value of an 8 bit sRGB component. */
+    public static float toLinear(int srgb){
+        return SRGB_TO_LINEAR[srgb];
+    }
+
+    /** @return The linear light value of an sRGB component from 0 to 1. */
+    public static float toLinear(float srgb){
+        if (srgb <= 0)
+            return 0;
+        if (srgb >= 1)
+            return 1;
+        float position = srgb * 255;
+        int i = (int)position;
+        float a = SRGB_TO_LINEAR[i];
+        return i == 255 ? a : a + (SRGB_TO_LINEAR[i + 1] - a) * (position - i);
+    }
+
+    /** @return The sRGB component from 0 to 1 of a linear light value. */
+    public static float fromLinear(float linear){
+        if (linear <= 0)
+            return 0;
+        if (linear >= 1)
+            return 1;
+        float position = linear * LINEAR_TO_SRGB_STEPS;
+        int i = (int)position;
+        float a = LINEAR_TO_SRGB[i];
+        return a + (LINEAR_TO_SRGB[i + 1] - a) * (position - i);
+    }
+
+    private static int fromLinearTo8Bit(float linear){
+        return (int)(fromLinear(linear) * 255 + 0.5f);
+    }
+
+    /** @return A blend of two Android Color ints in linear light. */
+    public static int blendLinear(int one, int two, float blend){
+        float inv = 1 - blend;
+        return IntColor.argb(
+                (int)(IntColor.alpha(one) * inv + IntColor.alpha(two) * blend + 0.5f),
+                fromLinearTo8Bit(toLinear(IntColor.red(one)) * inv + toLinear(IntColor.red(two)) * blend),
+                fromLinearTo8Bit(toLinear(IntColor.green(one)) * inv + toLinear(IntColor.green(two)) * blend),
+                fromLinearTo8Bit(toLinear(IntColor.blue(one)) * inv + toLinear(IntColor.blue(two)) * blend));
+    }
+
+    /** Sets the destination Color to a blend of the two Colors in linear light and returns it. The
+     * destination may be one of the inputs. */
+    public static Color blendLinear(Color one, Color two, float blend, Color dst){
+        float inv = 1 - blend;
+        return dst.set(
+                fromLinear(toLinear(one.r) * inv + toLinear(two.r) * blend),
+                fromLinear(toLinear(one.g) * inv + toLinear(two.g) * blend),
+                fromLinear(toLinear(one.b) * inv + toLinear(two.b) * blend),
+                one.a * inv + two.a * blend);
+    }
+
+    /** @return A blend of two Android Color ints in OKLab. */
+    public static int blendOklab(int one, int two, float blend){
+        float[] rgb = rgbScratch.get();
+        blendOklab(toLinear(IntColor.red(one)), toLinear(IntColor.green(one)), toLinear(IntColor.blue(one)),
+                toLinear(IntColor.red(two)), toLinear(IntColor.green(two)), toLinear(IntColor.blue(two)),
+                blend, rgb);
+        return IntColor.argb(
+                (int)(IntColor.alpha(one) * (1 - blend) + IntColor.alpha(two) * blend + 0.5f),
+                fromLinearTo8Bit(rgb[0]), fromLinearTo8Bit(rgb[1]), fromLinearTo8Bit(rgb[2]));
+    }
+
+    /** Sets the destination Color to a blend of the two Colors in OKLab and returns it. The
+     * destination may be one of the inputs. */
+    public static Color blendOklab(Color one, Color two, float blend, Color dst){
+        float[] rgb = rgbScratch.get();
+        blendOklab(toLinear(one.r), toLinear(one.g), toLinear(one.b),
+                toLinear(two.r), toLinear(two.g), toLinear(two.b),
+                blend, rgb);
+        return dst.set(fromLinear(rgb[0]), fromLinear(rgb[1]), fromLinear(rgb[2]),
+                one.a * (1 - blend) + two.a * blend);
+    }
+
+    /**
+     * Blends two linear RGB colors in OKLab and writes the linear RGB result. OKLab is a linear
+     * transform of the cube roots of LMS cone responses, so blending those roots is the same as
+     * blending in OKLab, and the transform to and from Lab can be skipped.
+     */
+    private static void blendOklab(float r1, float g1, float b1, float r2, float g2, float b2,
+                                   float blend, float[] rgb){
+        float inv = 1 - blend;
+        float l = cbrt(0.4122214708f * r1 + 0.5363325363f * g1 + 0.0514459929f * b1) * inv +
+                cbrt(0.4122214708f * r2 + 0.5363325363f * g2 + 0.0514459929f * b2) * blend;
+        float m = cbrt(0.2119034982f * r1 + 0.6806995451f * g1 + 0.1073969566f * b1) * inv +
+                cbrt(0.2119034982f * r2 + 0.6806995451f * g2 + 0.1073969566f * b2) * blend;
+        float s = cbrt(0.0883024619f * r1 + 0.2817188376f * g1 + 0.6299787005f * b1) * inv +
+                cbrt(0.0883024619f * r2 + 0.2817188376f * g2 + 0.6299787005f * b2) * blend;
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+        rgb[0] = 4.0767416621f * l - 3.3077115913f * m + 0.2309699292f * s;
+        rgb[1] = -1.2684380046f * l + 2.6097574011f * m - 0.3413193965f * s;
+        rgb[2] = -0.0041960863f * l - 0.7034186147f * m + 1.7076147010f * s;
+    }
+
+    /** Cube root of a non-negative value, from an exponent estimate refined with two Newton steps.
+     * The relative error is at most 1.8e-6 for normal inputs up to 1, far below 8 bit precision. */
+    static float cbrt(float x){
+        if (x <= 0)
+            return 0;
+        float y = Float.intBitsToFloat(Float.floatToRawIntBits(x) / 3 + 709921077);
+        y = (2 * y + x / (y * y)) * (1 / 3f);
+        y = (2 * y + x / (y * y)) * (1 / 3f);
+        return y;
+    }
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright 2015 Cypher Cove, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.cyphercove.lwptools.core;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Single threaded CPU Gaussian and box blurs over planar pixels, for batch jobs that blur many
+ * images at once on separate threads. Planes are stored one after another in a float array, each
+ * one a full image in rows, such as all red values followed by all green values.
+ * <p>
+ * The Gaussian kernel is looked up in a {@link GaussianKernelTable}, like it is for GaussianBlur
+ * and {@link CpuGaussianBlur}. The pairs of linearly sampled taps are expanded back to whole pixel
+ * taps, which gives the same result as CpuGaussianBlur to within rounding, without interpolating.
+ * The inner loops run straight along rows of a single plane so the JIT can vectorize them.
+ * <p>
+ * Working buffers are kept between calls, so an instance should only be used by one thread at a
+ * time.
+ */
+public class PlanarCpuBlur {
+
+    private final int maxRadius;
+    private final GaussianKernelTable kernelTable;
+    private final float[] weights;
+    private final float[] offsets;
+    /** Weights of whole pixel taps, from the center outward. */
+    private final float[] taps;
+    private int tapRadius;
+    private float radius = -1;
+    private float[] paddedRow = new float[0];
+    private float[] columnSums = new float[0];
+    private float[] pass1 = new float[0];
+
+    /**
+     * @param maxRadius The max radius of the Gaussian blur, which limits the kernel size. It is
+     *                  rounded up to an even number like it is for the shaders.
+     */
+    public PlanarCpuBlur(int maxRadius){
+        if (maxRadius < 2 || maxRadius > GaussianBlur.MAX_RADIUS){
+            throw new GdxRuntimeException(
+                    "Radius must be between 2 and " + GaussianBlur.MAX_RADIUS + " inclusive.");
+        }
+        if (maxRadius % 2 != 0)
+            maxRadius++;
+        this.maxRadius = maxRadius;
+        kernelTable = new GaussianKernelTable(maxRadius);
+        weights = new float[maxRadius / 2];
+        offsets = new float[maxRadius / 2];
+        taps = new float[maxRadius + 1];
+    }
+
+    public int getMaxRadius() {
+        return maxRadius;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    /** Sets the radius of the Gaussian blur. */
+    public void setRadius(float radius){
+        if (this.radius == radius)
+            return;
+        this.radius = radius;
+        float sigma = radius / 3f;
+        if (sigma < GaussianBlur.MIN_SIGMA)
+            return;
+        taps[0] = kernelTable.lookup(sigma, weights, offsets);
+
+        //Split each pair's weight between its two pixels by where its offset falls between them.
+        tapRadius = 0;
+        for (int i = 0; i < weights.length; i++){
+            float progress = offsets[i] - (i * 2 + 1);
+            taps[i * 2 + 1] = weights[i] * (1f - progress);
+            taps[i * 2 + 2] = weights[i] * progress;
+            if (weights[i] > 0)
+                tapRadius = progress > 0 ? i * 2 + 2 : i * 2 + 1;
+        }
+    }
+
+    public boolean shouldBlur(){
+        return radius / 3f > GaussianBlur.MIN_SIGMA;
+    }
+
+    /**
+     * Blurs the planes in place with the Gaussian kernel set by {@link #setRadius(float)}.
+     * @param planeCount The number of planes in the array, such as 4 for RGBA.
+     */
+    public void blur(float[] planes, int planeCount, int width, int height){
+        int planeSize = width * height;
+        if (planes.length < planeSize * planeCount)
+            throw new GdxRuntimeException("Pixel array is too small for the given size.");
+        if (!shouldBlur())
+            return;
+        ensureCapacity(width, height, tapRadius);
+        for (int p = 0; p < planeCount; p++){
+            int start = p * planeSize;
+            blurRows(planes, start, width, height);
+            blurColumns(planes, start, width, height);
+        }
+    }
+
+    private void blurRows(float[] planes, int start, int width, int height){
+        float[] row = paddedRow;
+        float[] destination = pass1;
+        int radius = tapRadius;
+        for (int y = 0; y < height; y++){
+            int rowStart = start + y * width;
+            padRow(planes, rowStart, width, radius);
+            int d = y * width;
+            float center = taps[0];
+            for (int x = 0; x < width; x++)
+                destination[d + x] = row[x + radius] * center;
+            for (int j = 1; j <= radius; j++){
+                float tap = taps[j];
+                int right = radius + j;
+                int left = radius - j;
+                for (int x = 0; x < width; x++)
+                    destination[d + x] += (row[x + right] + row[x + left]) * tap;
+            }
+        }
+    }
+
+    private void blurColumns(float[] planes, int start, int width, int height){
+        float[] source = pass1;
+        int radius = tapRadius;
+        int lastRow = height - 1;
+        for (int y = 0; y < height; y++){
+            int d = start + y * width;
+            int s = y * width;
+            float center = taps[0];
+            for (int x = 0; x < width; x++)
+                planes[d + x] = source[s + x] * center;
+            for (int j = 1; j <= radius; j++){
+                float tap = taps[j];
+                int below = Math.min(y + j, lastRow) * width;
+                int above = Math.max(y - j, 0) * width;
+                for (int x = 0; x < width; x++)
+                    planes[d + x] += (source[below + x] + source[above + x]) * tap;
+            }
+        }
+    }
+
+    /**
+     * Blurs the planes in place with a box filter, which costs the same at any radius. Repeated box
+     * blurs approach a Gaussian blur.
+     * @param planeCount The number of planes in the array, such as 4 for RGBA.
+     * @param boxRadius The number of pixels averaged on each side of a pixel.
+     */
+    public void boxBlur(float[] planes, int planeCount, int width, int height, int boxRadius){
+        int planeSize = width * height;
+        if (planes.length < planeSize * planeCount)
+            throw new GdxRuntimeException("Pixel array is too small for the given size.");
+        if (boxRadius < 1)
+            return;
+        ensureCapacity(width, height, boxRadius);
+        float scale = 1f / (boxRadius * 2 + 1);
+        for (int p = 0; p < planeCount; p++){
+            int start = p * planeSize;
+            boxBlurRows(planes, start, width, height, boxRadius, scale);
+            boxBlurColumns(planes, start, width, height, boxRadius, scale);
+        }
+    }
+
+    private void boxBlurRows(float[] planes, int start, int width, int height, int radius, float scale){
+        float[] row = paddedRow;
+        float[] destination = pass1;
+        int size = radius * 2 + 1;
+        for (int y = 0; y < height; y++){
+            padRow(planes, start + y * width, width, radius);
+            int d = y * width;
+            float sum = 0;
+            for (int k = 0; k < size; k++)
+                sum += row[k];
+            for (int x = 0; x < width; x++){
+                destination[d + x] = sum * scale;
+                sum += row[x + size] - row[x];
+            }
+        }
+    }
+
+    private void boxBlurColumns(float[] planes, int start, int width, int height, int radius, float scale){
+        float[] source = pass1;
+        float[] sums = columnSums;
+        int lastRow = height - 1;
+        for (int x = 0; x < width; x++)
+            sums[x] = 0;
+        for (int k = -radius; k <= radius; k++){
+            int s = Math.min(Math.max(k, 0), lastRow) * width;
+            for (int x = 0; x < width; x++)
+                sums[x] += source[s + x];
+        }
+        for (int y = 0; y < height; y++){
+            int d = start + y * width;
+            for (int x = 0; x < width; x++)
+                planes[d + x] = sums[x] * scale;
+            int entering = Math.min(y + radius + 1, lastRow) * width;
+            int leaving = Math.max(y - radius, 0) * width;
+            for (int x = 0; x < width; x++)
+                sums[x] += source[entering + x] - source[leaving + x];
+        }
+    }
+
+    /** Copies a row into the padded row with its end pixels repeated, like clamp to edge. */
+    private void padRow(float[] planes, int rowStart, int width, int padding){
+        float[] row = paddedRow;
+        float first = planes[rowStart];
+        float last = planes[rowStart + width - 1];
+        for (int k = 0; k < padding; k++)
+            row[k] = first;
+        System.arraycopy(planes, rowStart, row, padding, width);
+        for (int k = padding + width; k < width + padding * 2 + 1; k++)
+            row[k] = last;
+    }
+
+    private void ensureCapacity(int width, int height, int padding){
+        if (pass1.length < width * height)
+            pass1 = new float[width * height];
+        if (paddedRow.length < width + padding * 2 + 1)
+            paddedRow = new float[width + padding * 2 + 1];
+        if (columnSums.length < width)
+            columnSums = new float[width];
+    }
+}